@@ -16,8 +16,7 @@
 
 package com.robinhood.ticker;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
 import java.util.Set;
 
 /**
@@ -29,6 +28,31 @@ public class LevenshteinUtils {
     static final int ACTION_INSERT = 1;
     static final int ACTION_DELETE = 2;
 
+    // Segments whose Levenshtein matrix would be larger than this are split in half with
+    // Hirschberg's algorithm, which only needs linear space, until the pieces are small enough.
+    static final int MAX_MATRIX_SIZE = 128 * 128;
+
+    /**
+     * Same as {@link #computeColumnActions(char[], char[], BitSet)} but takes in the supported
+     * characters as a set.
+     *
+     * @param source the source char array to animate from
+     * @param target the target char array to animate to
+     * @param supportedCharacters all characters that support custom animation.
+     * @return an int array of size min(source.length, target.length) where each index
+     *         corresponds to one of {@link #ACTION_SAME}, {@link #ACTION_INSERT},
+     *         {@link #ACTION_DELETE} to represent if we update, insert, or delete a character
+     *         at the particular index.
+     */
+    public static int[] computeColumnActions(char[] source, char[] target,
+            Set<Character> supportedCharacters) {
+        final BitSet supportedCharacterBits = new BitSet();
+        for (char c : supportedCharacters) {
+            supportedCharacterBits.set(c);
+        }
+        return computeColumnActions(source, target, supportedCharacterBits);
+    }
+
     /**
      * This is a wrapper function around {@link #appendColumnActionsForSegment} that
      * additionally takes in supportedCharacters. It uses supportedCharacters to compute whether
@@ -38,44 +62,232 @@ public class LevenshteinUtils {
      *
      * @param source the source char array to animate from
      * @param target the target char array to animate to
-     * @param supportedCharacters all characters that support custom animation.
+     * @param supportedCharacters all characters that support custom animation, where the bit
+     *                            at the index of each supported character is set.
      * @return an int array of size min(source.length, target.length) where each index
      *         corresponds to one of {@link #ACTION_SAME}, {@link #ACTION_INSERT},
      *         {@link #ACTION_DELETE} to represent if we update, insert, or delete a character
      *         at the particular index.
      */
     public static int[] computeColumnActions(char[] source, char[] target,
-            Set<Character> supportedCharacters) {
-        int sourceIndex = 0;
-        int targetIndex = 0;
+            BitSet supportedCharacters) {
+        final ColumnActionCollector collector =
+                new ColumnActionCollector(Math.max(source.length, target.length));
+        computeColumnActions(source, source.length, target, target.length, supportedCharacters,
+                new Workspace(), collector);
+        return collector.toArray();
+    }
+
+    /**
+     * Same as {@link #computeColumnActions(char[], char[], BitSet)} but aligns the numbers in
+     * source and target on decimalSeparator instead of diffing them. Integer parts are aligned to
+     * the right and fractional parts to the left, so that digits stay in their columns when the
+     * number changes magnitude, e.g. from 9.99 to 10.01.
+     *
+     * @param source the source char array to animate from
+     * @param target the target char array to animate to
+     * @param supportedCharacters all characters that support custom animation, where the bit
+     *                            at the index of each supported character is set.
+     * @param decimalSeparator the character that separates the integer and fractional parts.
+     * @return an int array of column actions, see
+     *         {@link #computeColumnActions(char[], char[], BitSet)}.
+     */
+    public static int[] computeNumericColumnActions(char[] source, char[] target,
+            BitSet supportedCharacters, char decimalSeparator) {
+        final ColumnActionCollector collector =
+                new ColumnActionCollector(Math.max(source.length, target.length));
+        computeNumericColumnActions(source, source.length, target, target.length,
+                supportedCharacters, decimalSeparator, new Workspace(), collector);
+        return collector.toArray();
+    }
+
+    /**
+     * Same as {@link #computeColumnActions(char[], char[], BitSet)} but reports each action to the
+     * given sink in order instead of collecting them into an array. All intermediate state lives
+     * in the given workspace, so repeated calls with the same workspace don't allocate once the
+     * workspace has grown large enough.
+     *
+     * @param source the source char array to animate from
+     * @param sourceLength the number of chars in source to consider
+     * @param target the target char array to animate to
+     * @param targetLength the number of chars in target to consider
+     * @param supportedCharacters all characters that support custom animation.
+     * @param workspace the scratch space to run the computation in
+     * @param sink receives one of {@link #ACTION_SAME}, {@link #ACTION_INSERT} and
+     *             {@link #ACTION_DELETE} for each column, in order.
+     */
+    static void computeColumnActions(char[] source, int sourceLength, char[] target,
+            int targetLength, BitSet supportedCharacters, Workspace workspace,
+            ColumnActionSink sink) {
+        // Most updates only touch the end of the text, so skip past the common prefix. Every
+        // character in it stays in place.
+        int prefixLength = 0;
+        final int minLength = Math.min(sourceLength, targetLength);
+        while (prefixLength < minLength && source[prefixLength] == target[prefixLength]) {
+            prefixLength++;
+        }
+        if (sourceLength == targetLength && (prefixLength == sourceLength
+                || haveMatchingSupport(source, target, prefixLength, sourceLength,
+                        supportedCharacters))) {
+            // Every segment lines up with one of the same length, so nothing shifts around
+            fillWithActions(sink, sourceLength, ACTION_SAME);
+            return;
+        }
+
+        // The prefix might end in the middle of a segment that still needs to be diffed as a
+        // whole, so back off to the start of that segment.
+        while (prefixLength > 0 && supportedCharacters.get(source[prefixLength - 1])) {
+            prefixLength--;
+        }
+        fillWithActions(sink, prefixLength, ACTION_SAME);
+
+        appendColumnActions(workspace, sink, source, target, supportedCharacters,
+                prefixLength, sourceLength, prefixLength, targetLength);
+    }
+
+    /**
+     * Same as {@link #computeColumnActions(char[], int, char[], int, BitSet, Workspace,
+     * ColumnActionSink)} but aligns the numbers in source and target on decimalSeparator.
+     * Integer parts are lined up from the right and fractional parts from the left, so every
+     * digit keeps its column as the number changes magnitude and columns are only ever inserted
+     * or deleted at the outer ends of the number. Anything before or after the number is diffed
+     * as usual.
+     *
+     * The number in each text is the integer part right in front of the first decimalSeparator,
+     * followed by the separator and the fractional part. If there is no separator, the integer
+     * part is the last run of supported characters instead. The integer part may contain single
+     * unsupported characters between supported ones, such as grouping separators.
+     */
+    static void computeNumericColumnActions(char[] source, int sourceLength, char[] target,
+            int targetLength, BitSet supportedCharacters, char decimalSeparator,
+            Workspace workspace, ColumnActionSink sink) {
+        final int sourceSeparator = findDecimalSeparator(
+                source, sourceLength, supportedCharacters, decimalSeparator);
+        final int targetSeparator = findDecimalSeparator(
+                target, targetLength, supportedCharacters, decimalSeparator);
+        final int sourceIntegerStart =
+                findIntegerStart(source, sourceSeparator, supportedCharacters);
+        final int targetIntegerStart =
+                findIntegerStart(target, targetSeparator, supportedCharacters);
+        final int sourceFractionEnd = findFractionEnd(source, sourceLength, sourceSeparator,
+                supportedCharacters, decimalSeparator);
+        final int targetFractionEnd = findFractionEnd(target, targetLength, targetSeparator,
+                supportedCharacters, decimalSeparator);
+
+        // Whatever comes before the number
+        appendColumnActions(workspace, sink, source, target, supportedCharacters,
+                0, sourceIntegerStart, 0, targetIntegerStart);
+
+        // Right-align the integer parts
+        final int sourceIntegerLength = sourceSeparator - sourceIntegerStart;
+        final int targetIntegerLength = targetSeparator - targetIntegerStart;
+        fillWithActions(sink, sourceIntegerLength - targetIntegerLength, ACTION_DELETE);
+        fillWithActions(sink, targetIntegerLength - sourceIntegerLength, ACTION_INSERT);
+        fillWithActions(sink, Math.min(sourceIntegerLength, targetIntegerLength), ACTION_SAME);
+
+        // Left-align the separators and the fractional parts
+        final int sourceFractionLength = sourceFractionEnd - sourceSeparator;
+        final int targetFractionLength = targetFractionEnd - targetSeparator;
+        fillWithActions(sink, Math.min(sourceFractionLength, targetFractionLength), ACTION_SAME);
+        fillWithActions(sink, sourceFractionLength - targetFractionLength, ACTION_DELETE);
+        fillWithActions(sink, targetFractionLength - sourceFractionLength, ACTION_INSERT);
+
+        // Whatever comes after the number
+        appendColumnActions(workspace, sink, source, target, supportedCharacters,
+                sourceFractionEnd, sourceLength, targetFractionEnd, targetLength);
+    }
+
+    /**
+     * @return the index of the first decimalSeparator in chars, or if there is none, the index
+     *         after the last supported character. 0 if there are no supported characters either.
+     */
+    private static int findDecimalSeparator(char[] chars, int length,
+            BitSet supportedCharacters, char decimalSeparator) {
+        int lastSupportedEnd = 0;
+        for (int i = 0; i < length; i++) {
+            if (chars[i] == decimalSeparator) {
+                return i;
+            } else if (supportedCharacters.get(chars[i])) {
+                lastSupportedEnd = i + 1;
+            }
+        }
+        return lastSupportedEnd;
+    }
+
+    private static int findIntegerStart(char[] chars, int separator,
+            BitSet supportedCharacters) {
+        int start = separator;
+        while (start > 0) {
+            if (supportedCharacters.get(chars[start - 1])) {
+                start--;
+            } else if (start < separator && start > 1
+                    && supportedCharacters.get(chars[start - 2])) {
+                // A grouping separator between two supported characters
+                start--;
+            } else {
+                break;
+            }
+        }
+        return start;
+    }
+
+    private static int findFractionEnd(char[] chars, int length, int separator,
+            BitSet supportedCharacters, char decimalSeparator) {
+        if (separator == length || chars[separator] != decimalSeparator) {
+            return separator;
+        }
+        int end = separator + 1;
+        while (end < length && supportedCharacters.get(chars[end])) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Computes the column actions between the given bounds, see
+     * {@link #computeColumnActions(char[], char[], BitSet)}.
+     */
+    private static void appendColumnActions(
+            Workspace workspace,
+            ColumnActionSink sink,
+            char[] source,
+            char[] target,
+            BitSet supportedCharacters,
+            int sourceStart,
+            int sourceEnd,
+            int targetStart,
+            int targetEnd
+    ) {
+        int sourceIndex = sourceStart;
+        int targetIndex = targetStart;
 
-        List<Integer> columnActions = new ArrayList<>();
         while (true) {
             // Check for terminating conditions
-            final boolean reachedEndOfSource = sourceIndex == source.length;
-            final boolean reachedEndOfTarget = targetIndex == target.length;
+            final boolean reachedEndOfSource = sourceIndex == sourceEnd;
+            final boolean reachedEndOfTarget = targetIndex == targetEnd;
             if (reachedEndOfSource && reachedEndOfTarget) {
                 break;
             } else if (reachedEndOfSource) {
-                fillWithActions(columnActions, target.length - targetIndex, ACTION_INSERT);
+                fillWithActions(sink, targetEnd - targetIndex, ACTION_INSERT);
                 break;
             } else if (reachedEndOfTarget) {
-                fillWithActions(columnActions, source.length - sourceIndex, ACTION_DELETE);
+                fillWithActions(sink, sourceEnd - sourceIndex, ACTION_DELETE);
                 break;
             }
 
-            final boolean containsSourceChar = supportedCharacters.contains(source[sourceIndex]);
-            final boolean containsTargetChar = supportedCharacters.contains(target[targetIndex]);
+            final boolean containsSourceChar = supportedCharacters.get(source[sourceIndex]);
+            final boolean containsTargetChar = supportedCharacters.get(target[targetIndex]);
 
             if (containsSourceChar && containsTargetChar) {
                 // We reached a segment that we can perform animations on
-                final int sourceEndIndex =
-                        findNextUnsupportedChar(source, sourceIndex + 1, supportedCharacters);
-                final int targetEndIndex =
-                        findNextUnsupportedChar(target, targetIndex + 1, supportedCharacters);
+                final int sourceEndIndex = findNextUnsupportedChar(
+                        source, sourceIndex + 1, sourceEnd, supportedCharacters);
+                final int targetEndIndex = findNextUnsupportedChar(
+                        target, targetIndex + 1, targetEnd, supportedCharacters);
 
                 appendColumnActionsForSegment(
-                        columnActions,
+                        workspace,
+                        sink,
                         source,
                         target,
                         sourceIndex,
@@ -87,41 +299,58 @@ public class LevenshteinUtils {
                 targetIndex = targetEndIndex;
             } else if (containsSourceChar) {
                 // We are animating in a target character that isn't supported
-                columnActions.add(ACTION_INSERT);
+                sink.onColumnAction(ACTION_INSERT);
                 targetIndex++;
             } else if (containsTargetChar) {
                 // We are animating out a source character that isn't supported
-                columnActions.add(ACTION_DELETE);
+                sink.onColumnAction(ACTION_DELETE);
                 sourceIndex++;
             } else {
                 // Both characters are not supported, perform default animation to replace
-                columnActions.add(ACTION_SAME);
+                sink.onColumnAction(ACTION_SAME);
                 sourceIndex++;
                 targetIndex++;
             }
         }
+    }
+
+    private static int findNextUnsupportedChar(char[] chars, int startIndex, int endIndex,
+            BitSet supportedCharacters) {
+        for (int i = startIndex; i < endIndex; i++) {
+            if (!supportedCharacters.get(chars[i])) {
+                return i;
+            }
+        }
+        return endIndex;
+    }
 
-        // Concat all of the actions into one array
-        final int[] result = new int[columnActions.size()];
-        for (int i = 0; i < columnActions.size(); i++) {
-            result[i] = columnActions.get(i);
+    /**
+     * @return whether every differing pair of characters within the given bounds is either both
+     *         supported or both unsupported.
+     */
+    private static boolean haveMatchingSupport(char[] source, char[] target, int start, int end,
+            BitSet supportedCharacters) {
+        for (int i = start; i < end; i++) {
+            if (source[i] != target[i] && supportedCharacters.get(source[i])
+                    != supportedCharacters.get(target[i])) {
+                return false;
+            }
         }
-        return result;
+        return true;
     }
 
-    private static int findNextUnsupportedChar(char[] chars, int startIndex,
-            Set<Character> supportedCharacters) {
-        for (int i = startIndex; i < chars.length; i++) {
-            if (!supportedCharacters.contains(chars[i])) {
-                return i;
+    private static boolean containsChar(char[] chars, int start, int end, char c) {
+        for (int i = start; i < end; i++) {
+            if (chars[i] == c) {
+                return true;
             }
         }
-        return chars.length;
+        return false;
     }
 
-    private static void fillWithActions(List<Integer> actions, int num, int action) {
+    private static void fillWithActions(ColumnActionSink sink, int num, int action) {
         for (int i = 0; i < num; i++) {
-            actions.add(action);
+            sink.onColumnAction(action);
         }
     }
 
@@ -131,7 +360,11 @@ public class LevenshteinUtils {
      * Unlike the traditional algorithm, we force return all {@link #ACTION_SAME} for inputs that
      * are the same length (so optimize update over insertion/deletion).
      *
-     * @param columnActions the target list to append actions into
+     * Characters shared at the start and the end of both segments are trimmed off before running
+     * the algorithm, as long as doing so doesn't change the computed actions.
+     *
+     * @param workspace the scratch space holding the matrix and the traced actions
+     * @param sink the sink to report actions to
      * @param source the source character array
      * @param target the target character array
      * @param sourceStart the start index of source to compute column actions (inclusive)
@@ -140,7 +373,8 @@ public class LevenshteinUtils {
      * @param targetEnd the end index of target to compute column actions (exclusive)
      */
     private static void appendColumnActionsForSegment(
-            List<Integer> columnActions,
+            Workspace workspace,
+            ColumnActionSink sink,
             char[] source,
             char[] target,
             int sourceStart,
@@ -150,79 +384,327 @@ public class LevenshteinUtils {
     ) {
         final int sourceLength = sourceEnd - sourceStart;
         final int targetLength = targetEnd - targetStart;
-        final int resultLength = Math.max(sourceLength, targetLength);
 
         if (sourceLength == targetLength) {
             // No modifications needed if the length of the strings are the same
-            fillWithActions(columnActions, resultLength, ACTION_SAME);
+            fillWithActions(sink, sourceLength, ACTION_SAME);
+            return;
+        }
+
+        // The matrix always traces a common prefix back along its diagonal
+        int prefixLength = 0;
+        while (prefixLength < sourceLength && prefixLength < targetLength
+                && source[sourceStart + prefixLength] == target[targetStart + prefixLength]) {
+            prefixLength++;
+        }
+        fillWithActions(sink, prefixLength, ACTION_SAME);
+        if (prefixLength == sourceLength || prefixLength == targetLength) {
+            // Pure append or truncate
+            fillWithActions(sink, targetLength - prefixLength, ACTION_INSERT);
+            fillWithActions(sink, sourceLength - prefixLength, ACTION_DELETE);
             return;
         }
+        sourceStart += prefixLength;
+        targetStart += prefixLength;
+
+        // A common suffix is only traced along the diagonal if none of its characters appear
+        // earlier on, otherwise the trace might prefer to line them up with the earlier copies.
+        int suffixLength = 0;
+        while (sourceEnd - suffixLength - 1 > sourceStart
+                && targetEnd - suffixLength - 1 > targetStart) {
+            final char c = source[sourceEnd - suffixLength - 1];
+            if (c != target[targetEnd - suffixLength - 1]
+                    || containsChar(source, sourceStart, sourceEnd - suffixLength - 1, c)
+                    || containsChar(target, targetStart, targetEnd - suffixLength - 1, c)) {
+                break;
+            }
+            suffixLength++;
+        }
+
+        appendMinimumEditActions(workspace, sink, source, target,
+                sourceStart, sourceEnd - suffixLength, targetStart, targetEnd - suffixLength);
+        fillWithActions(sink, suffixLength, ACTION_SAME);
+    }
 
+    /**
+     * Reports a minimum set of edit actions between the given bounds. Small inputs go straight to
+     * {@link #appendLevenshteinActions}. Larger inputs are divided with Hirschberg's algorithm:
+     * the source is split in half and the target is split where the edit distances of the two
+     * halves add up to the least, which only takes two rows of the matrix to find.
+     * https://en.wikipedia.org/wiki/Hirschberg%27s_algorithm
+     */
+    private static void appendMinimumEditActions(
+            Workspace workspace,
+            ColumnActionSink sink,
+            char[] source,
+            char[] target,
+            int sourceStart,
+            int sourceEnd,
+            int targetStart,
+            int targetEnd
+    ) {
+        final int sourceLength = sourceEnd - sourceStart;
+        final int targetLength = targetEnd - targetStart;
+
+        if (sourceLength == 0 || targetLength == 0) {
+            fillWithActions(sink, targetLength, ACTION_INSERT);
+            fillWithActions(sink, sourceLength, ACTION_DELETE);
+        } else if ((long) (sourceLength + 1) * (targetLength + 1) <= MAX_MATRIX_SIZE) {
+            appendLevenshteinActions(workspace, sink, source, target,
+                    sourceStart, sourceEnd, targetStart, targetEnd);
+        } else if (sourceLength == 1) {
+            // Keep the source character in place of its first copy in the target, if any
+            final char c = source[sourceStart];
+            int matchIndex = targetStart;
+            while (matchIndex < targetEnd && target[matchIndex] != c) {
+                matchIndex++;
+            }
+            if (matchIndex == targetEnd) {
+                matchIndex = targetStart;
+            }
+            fillWithActions(sink, matchIndex - targetStart, ACTION_INSERT);
+            sink.onColumnAction(ACTION_SAME);
+            fillWithActions(sink, targetEnd - matchIndex - 1, ACTION_INSERT);
+        } else {
+            final int sourceMid = sourceStart + sourceLength / 2;
+            final int[] forwardRow = workspace.obtainForwardRow(targetLength + 1);
+            final int[] reverseRow = workspace.obtainReverseRow(targetLength + 1);
+            computeLastRow(source, sourceStart, sourceMid, target, targetStart, targetEnd,
+                    forwardRow, false);
+            computeLastRow(source, sourceMid, sourceEnd, target, targetStart, targetEnd,
+                    reverseRow, true);
+
+            int split = 0;
+            int minDistance = Integer.MAX_VALUE;
+            for (int j = 0; j <= targetLength; j++) {
+                final int distance = forwardRow[j] + reverseRow[targetLength - j];
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    split = j;
+                }
+            }
+
+            final int targetMid = targetStart + split;
+            appendMinimumEditActions(workspace, sink, source, target,
+                    sourceStart, sourceMid, targetStart, targetMid);
+            appendMinimumEditActions(workspace, sink, source, target,
+                    sourceMid, sourceEnd, targetMid, targetEnd);
+        }
+    }
+
+    /**
+     * Computes the last row of the Levenshtein matrix between the given bounds into row, which
+     * needs to hold at least (targetEnd - targetStart + 1) elements. If reverse is set, the
+     * matrix is computed between the reversed source and target instead.
+     */
+    private static void computeLastRow(char[] source, int sourceStart, int sourceEnd,
+            char[] target, int targetStart, int targetEnd, int[] row, boolean reverse) {
+        final int sourceLength = sourceEnd - sourceStart;
+        final int targetLength = targetEnd - targetStart;
+        for (int j = 0; j <= targetLength; j++) {
+            row[j] = j;
+        }
+        for (int i = 1; i <= sourceLength; i++) {
+            final char sourceChar = reverse ? source[sourceEnd - i] : source[sourceStart + i - 1];
+            int diagonal = row[0];
+            row[0] = i;
+            for (int j = 1; j <= targetLength; j++) {
+                final char targetChar =
+                        reverse ? target[targetEnd - j] : target[targetStart + j - 1];
+                final int above = row[j];
+                row[j] = min(
+                        above + 1,
+                        row[j - 1] + 1,
+                        diagonal + (sourceChar == targetChar ? 0 : 1));
+                diagonal = above;
+            }
+        }
+    }
+
+    /**
+     * Computes the Levenshtein matrix between the given bounds and reports the actions found by
+     * tracing it back, preferring {@link #ACTION_SAME} over {@link #ACTION_DELETE} over
+     * {@link #ACTION_INSERT} when they are equally good.
+     */
+    private static void appendLevenshteinActions(
+            Workspace workspace,
+            ColumnActionSink sink,
+            char[] source,
+            char[] target,
+            int sourceStart,
+            int sourceEnd,
+            int targetStart,
+            int targetEnd
+    ) {
+        final int sourceLength = sourceEnd - sourceStart;
+        final int targetLength = targetEnd - targetStart;
         final int numRows = sourceLength + 1;
         final int numCols = targetLength + 1;
 
-        // Compute the Levenshtein matrix
-        final int[][] matrix = new int[numRows][numCols];
+        // Compute the Levenshtein matrix, stored row by row in a flat array
+        final int[] matrix = workspace.obtainMatrix(numRows * numCols);
 
         for (int i = 0; i < numRows; i++) {
-            matrix[i][0] = i;
+            matrix[i * numCols] = i;
         }
         for (int j = 0; j < numCols; j++) {
-            matrix[0][j] = j;
+            matrix[j] = j;
         }
 
         int cost;
         for (int row = 1; row < numRows; row++) {
+            final int rowOffset = row * numCols;
+            final int previousRowOffset = rowOffset - numCols;
+            final char sourceChar = source[row - 1 + sourceStart];
             for (int col = 1; col < numCols; col++) {
-                cost = source[row - 1 + sourceStart] == target[col - 1 + targetStart] ? 0 : 1;
+                cost = sourceChar == target[col - 1 + targetStart] ? 0 : 1;
 
-                matrix[row][col] = min(
-                        matrix[row-1][col] + 1,
-                        matrix[row][col-1] + 1,
-                        matrix[row-1][col-1] + cost);
+                matrix[rowOffset + col] = min(
+                        matrix[previousRowOffset + col] + 1,
+                        matrix[rowOffset + col - 1] + 1,
+                        matrix[previousRowOffset + col - 1] + cost);
             }
         }
 
         // Reverse trace the matrix to compute the necessary actions
-        final List<Integer> resultList = new ArrayList<>(resultLength * 2);
+        workspace.clearActions();
         int row = numRows - 1;
         int col = numCols - 1;
         while (row > 0 || col > 0) {
             if (row == 0) {
                 // At the top row, can only move left, meaning insert column
-                resultList.add(ACTION_INSERT);
+                workspace.addAction(ACTION_INSERT);
                 col--;
             } else if (col == 0) {
                 // At the left column, can only move up, meaning delete column
-                resultList.add(ACTION_DELETE);
+                workspace.addAction(ACTION_DELETE);
                 row--;
             } else {
-                final int insert = matrix[row][col-1];
-                final int delete = matrix[row-1][col];
-                final int replace = matrix[row-1][col-1];
+                final int insert = matrix[row * numCols + col - 1];
+                final int delete = matrix[(row - 1) * numCols + col];
+                final int replace = matrix[(row - 1) * numCols + col - 1];
 
                 if (insert < delete && insert < replace) {
-                    resultList.add(ACTION_INSERT);
+                    workspace.addAction(ACTION_INSERT);
                     col--;
                 } else if (delete < replace) {
-                    resultList.add(ACTION_DELETE);
+                    workspace.addAction(ACTION_DELETE);
                     row--;
                 } else {
-                    resultList.add(ACTION_SAME);
+                    workspace.addAction(ACTION_SAME);
                     row--;
                     col--;
                 }
             }
         }
 
-        // Reverse the actions to get the correct ordering
-        final int resultSize = resultList.size();
-        for (int i = resultSize - 1; i >= 0; i--) {
-            columnActions.add(resultList.get(i));
+        // Report the actions in reverse to get the correct ordering
+        for (int i = workspace.getActionCount() - 1; i >= 0; i--) {
+            sink.onColumnAction(workspace.getAction(i));
         }
     }
 
     private static int min(int first, int second, int third) {
         return Math.min(first, Math.min(second, third));
     }
+
+    /**
+     * Receives the column actions computed by
+     * {@link #computeColumnActions(char[], int, char[], int, BitSet, Workspace, ColumnActionSink)}.
+     */
+    interface ColumnActionSink {
+        void onColumnAction(int action);
+    }
+
+    /**
+     * Reusable scratch space for computing column actions. It holds a flat Levenshtein matrix, the
+     * two rows used to split large inputs and a buffer of traced actions packed 2 bits apiece, all
+     * of which only ever grow.
+     */
+    static final class Workspace {
+        private static final int ACTIONS_PER_WORD = 32;
+
+        private int[] matrix = new int[0];
+        private int[] forwardRow = new int[0];
+        private int[] reverseRow = new int[0];
+        private long[] actions = new long[1];
+        private int actionCount;
+
+        int[] obtainMatrix(int size) {
+            if (matrix.length < size) {
+                matrix = new int[Math.max(size, matrix.length * 2)];
+            }
+            return matrix;
+        }
+
+        int[] obtainForwardRow(int size) {
+            if (forwardRow.length < size) {
+                forwardRow = new int[Math.max(size, forwardRow.length * 2)];
+            }
+            return forwardRow;
+        }
+
+        int[] obtainReverseRow(int size) {
+            if (reverseRow.length < size) {
+                reverseRow = new int[Math.max(size, reverseRow.length * 2)];
+            }
+            return reverseRow;
+        }
+
+        void clearActions() {
+            actionCount = 0;
+        }
+
+        void addAction(int action) {
+            final int word = actionCount / ACTIONS_PER_WORD;
+            final int shift = (actionCount % ACTIONS_PER_WORD) * 2;
+            if (word == actions.length) {
+                final long[] newActions = new long[actions.length * 2];
+                System.arraycopy(actions, 0, newActions, 0, actions.length);
+                actions = newActions;
+            }
+            actions[word] = (actions[word] & ~(3L << shift)) | ((long) action << shift);
+            actionCount++;
+        }
+
+        int getAction(int index) {
+            final int shift = (index % ACTIONS_PER_WORD) * 2;
+            return (int) (actions[index / ACTIONS_PER_WORD] >>> shift) & 3;
+        }
+
+        int getActionCount() {
+            return actionCount;
+        }
+    }
+
+    /**
+     * Collects column actions into an int array for the array based API.
+     */
+    private static final class ColumnActionCollector implements ColumnActionSink {
+        private int[] actions;
+        private int size;
+
+        ColumnActionCollector(int initialCapacity) {
+            actions = new int[Math.max(initialCapacity, 1)];
+        }
+
+        @Override
+        public void onColumnAction(int action) {
+            if (size == actions.length) {
+                final int[] newActions = new int[size * 2];
+                System.arraycopy(actions, 0, newActions, 0, size);
+                actions = newActions;
+            }
+            actions[size++] = action;
+        }
+
+        int[] toArray() {
+            if (size == actions.length) {
+                return actions;
+            }
+            final int[] result = new int[size];
+            System.arraycopy(actions, 0, result, 0, size);
+            return result;
+        }
+    }
 }
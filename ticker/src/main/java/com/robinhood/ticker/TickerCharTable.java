@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+/**
+ * Helpers for the hash tables that map characters to values without boxing them. The keys are
+ * kept in a char[] whose size is a power of two, {@link TickerUtils#EMPTY_CHAR} marks the free
+ * slots, and collisions are resolved by linear probing. The values live in a parallel array of
+ * whatever type the table needs.
+ */
+final class TickerCharTable {
+    private TickerCharTable() {}
+
+    /**
+     * @return the number of slots for a table that holds {@param size} keys. The load factor
+     *         stays at or below 50% so that probe sequences stay short.
+     */
+    static int getCapacity(int size) {
+        return Integer.highestOneBit(Math.max(size, 1)) * 4;
+    }
+
+    /**
+     * @return whether a table with {@param capacity} slots has to grow to hold {@param size} keys.
+     */
+    static boolean needsToGrow(int size, int capacity) {
+        return size * 2 > capacity;
+    }
+
+    /**
+     * @return the slot in {@param keys} that either holds {@param c} or is the free slot where
+     *         it should be inserted.
+     */
+    static int findSlot(char[] keys, char c) {
+        final int mask = keys.length - 1;
+        // Spread the bits a little since nearby code points tend to be used together.
+        int slot = (c * 0x9E3779B1 >>> 16) & mask;
+        while (keys[slot] != TickerUtils.EMPTY_CHAR && keys[slot] != c) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
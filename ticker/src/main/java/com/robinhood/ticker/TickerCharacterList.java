@@ -16,9 +16,7 @@
 
 package com.robinhood.ticker;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
  * This is the primary class that Ticker uses to determine how to animate from one character
@@ -29,14 +27,64 @@ import java.util.Set;
  * it will know that it has to go from 'd' to 'c' to 'b', and these are the characters
  * that show up during the animation scroll.
  *
+ * <p>Instances are immutable and shared between tickers, see {@link TickerCharacterListRegistry}.
+ *
  * @author Jin Cao, Robinhood
  */
 class TickerCharacterList {
+    /**
+     * Returned by {@link #getCharacterIndices} if the inputs are not supported. This can never
+     * collide with a valid result since indices are never negative.
+     */
+    static final long NO_INDICES = -1L;
+
+    // Lists with at most this many characters keep the doubled character list around so that
+    // it can be drawn from directly. Larger lists compute the characters on demand instead.
+    private static final int MAX_MATERIALIZED_CHARACTERS = 64;
+
+    // Large lists that consist of at most one contiguous range of characters per this many
+    // characters are stored as ranges.
+    private static final int MIN_CHARACTERS_PER_RANGE = 8;
+
+    // Lists whose characters span at most this many code points are indexed with a direct
+    // lookup table, everything else uses an open-addressed hash table.
+    private static final int MAX_DIRECT_INDEX_SPAN = 512;
+
+    // Lists with at most this many characters precompute the result of getCharacterIndices for
+    // every (start, end, direction) combination.
+    private static final int MAX_TRANSITION_TABLE_CHARACTERS = 16;
+    private static final int NUM_SCROLLING_DIRECTIONS = TickerView.ScrollingDirection.values().length;
+
     private final int numOriginalCharacters;
-    // The saved character list will always be of the format: EMPTY, list, list
+
+    // The characters are stored in exactly one of the following ways. The saved character list
+    // will always be of the format: EMPTY, list, list. The other formats only store the list
+    // once and are mapped onto that format by getCharacter.
     private final char[] characterList;
-    // A minor optimization so that we can cache the indices of each character.
-    private final Map<Character, Integer> characterIndicesMap;
+    // Contiguous runs of characters in list order: run i starts at rangeListOffsets[i] in the
+    // list with the character rangeFirstChars[i].
+    private final char[] rangeFirstChars;
+    private final int[] rangeListOffsets;
+    // Latin-1 characters only need a byte each.
+    private final byte[] latin1Characters;
+    private final char[] characters;
+
+    // A minor optimization so that we can cache the indices of each character. Exactly one of
+    // the lookup structures is used: directIndices[c - minChar] is the index of c (or -1),
+    // hashedChars/hashedIndices form a linear-probing table with EMPTY_CHAR marking free slots,
+    // and lists stored as ranges binary search the runs sorted by their first character.
+    private final char minChar;
+    private final int[] directIndices;
+    private final char[] hashedChars;
+    private final int[] hashedIndices;
+    private final char[] sortedRangeFirstChars;
+    private final char[] sortedRangeLastChars;
+    private final int[] sortedRangeListOffsets;
+
+    // transitionTable[(direction * (n + 1) + startIndex) * (n + 1) + endIndex] holds the packed
+    // result for the un-adjusted start and end indices, where n is numOriginalCharacters. Null
+    // if the list is too large for the table to be worthwhile.
+    private final long[] transitionTable;
 
     TickerCharacterList(String characterList) {
         if (characterList.contains(Character.toString(TickerUtils.EMPTY_CHAR))) {
@@ -48,37 +96,180 @@ class TickerCharacterList {
         final int length = charsArray.length;
         this.numOriginalCharacters = length;
 
-        characterIndicesMap = new HashMap<>(length);
+        char min = Character.MAX_VALUE;
+        char max = Character.MIN_VALUE;
+        int numRanges = 0;
         for (int i = 0; i < length; i++) {
-            characterIndicesMap.put(charsArray[i], i);
+            min = (char) Math.min(min, charsArray[i]);
+            max = (char) Math.max(max, charsArray[i]);
+            if (i == 0 || charsArray[i] != charsArray[i - 1] + 1) {
+                numRanges++;
+            }
         }
 
-        this.characterList = new char[length * 2 + 1];
-        this.characterList[0] = TickerUtils.EMPTY_CHAR;
-        for (int i = 0; i < length; i++) {
-            this.characterList[1 + i] = charsArray[i];
-            this.characterList[1 + length + i] = charsArray[i];
+        final long[] sortedRanges = length > MAX_MATERIALIZED_CHARACTERS
+                && numRanges * MIN_CHARACTERS_PER_RANGE <= length
+                ? getNonOverlappingRanges(charsArray, numRanges) : null;
+
+        if (length <= MAX_MATERIALIZED_CHARACTERS) {
+            this.characterList = new char[length * 2 + 1];
+            this.characterList[0] = TickerUtils.EMPTY_CHAR;
+            for (int i = 0; i < length; i++) {
+                this.characterList[1 + i] = charsArray[i];
+                this.characterList[1 + length + i] = charsArray[i];
+            }
+        } else {
+            this.characterList = null;
+        }
+
+        if (sortedRanges != null) {
+            this.rangeFirstChars = new char[numRanges];
+            this.rangeListOffsets = new int[numRanges];
+            this.sortedRangeFirstChars = new char[numRanges];
+            this.sortedRangeLastChars = new char[numRanges];
+            this.sortedRangeListOffsets = new int[numRanges];
+            for (int i = 0, range = 0; i < length; i++) {
+                if (i == 0 || charsArray[i] != charsArray[i - 1] + 1) {
+                    rangeFirstChars[range] = charsArray[i];
+                    rangeListOffsets[range++] = i;
+                }
+            }
+            for (int i = 0; i < numRanges; i++) {
+                final int range = (int) sortedRanges[i];
+                final int rangeEnd = range + 1 < numRanges ? rangeListOffsets[range + 1] : length;
+                sortedRangeFirstChars[i] = rangeFirstChars[range];
+                sortedRangeLastChars[i] = charsArray[rangeEnd - 1];
+                sortedRangeListOffsets[i] = rangeListOffsets[range];
+            }
+        } else {
+            this.rangeFirstChars = null;
+            this.rangeListOffsets = null;
+            this.sortedRangeFirstChars = null;
+            this.sortedRangeLastChars = null;
+            this.sortedRangeListOffsets = null;
+        }
+
+        if (this.characterList == null && sortedRanges == null && max <= 0xFF) {
+            this.latin1Characters = new byte[length];
+            for (int i = 0; i < length; i++) {
+                latin1Characters[i] = (byte) charsArray[i];
+            }
+        } else {
+            this.latin1Characters = null;
+        }
+
+        if (this.characterList == null && sortedRanges == null && latin1Characters == null) {
+            this.characters = charsArray;
+        } else {
+            this.characters = null;
+        }
+
+        if (sortedRanges != null) {
+            this.minChar = 0;
+            this.directIndices = null;
+            this.hashedChars = null;
+            this.hashedIndices = null;
+        } else if (length == 0 || max - min < MAX_DIRECT_INDEX_SPAN) {
+            this.minChar = min;
+            this.directIndices = new int[length == 0 ? 0 : max - min + 1];
+            this.hashedChars = null;
+            this.hashedIndices = null;
+            Arrays.fill(directIndices, -1);
+            for (int i = 0; i < length; i++) {
+                directIndices[charsArray[i] - min] = i;
+            }
+        } else {
+            this.minChar = 0;
+            this.directIndices = null;
+            final int capacity = TickerCharTable.getCapacity(length);
+            this.hashedChars = new char[capacity];
+            this.hashedIndices = new int[capacity];
+            for (int i = 0; i < length; i++) {
+                final int slot = TickerCharTable.findSlot(hashedChars, charsArray[i]);
+                hashedChars[slot] = charsArray[i];
+                hashedIndices[slot] = i;
+            }
+        }
+
+        if (length <= MAX_TRANSITION_TABLE_CHARACTERS) {
+            final int numIndices = length + 1;
+            this.transitionTable = new long[NUM_SCROLLING_DIRECTIONS * numIndices * numIndices];
+            for (TickerView.ScrollingDirection direction : TickerView.ScrollingDirection.values()) {
+                for (int startIndex = 0; startIndex < numIndices; startIndex++) {
+                    for (int endIndex = 0; endIndex < numIndices; endIndex++) {
+                        transitionTable[getTransitionTableIndex(direction, startIndex, endIndex)] =
+                                computeCharacterIndices(startIndex, endIndex, direction);
+                    }
+                }
+            }
+        } else {
+            this.transitionTable = null;
         }
     }
 
+    /**
+     * @return the contiguous runs of {@param chars} sorted by their first character, each
+     *         packed as (first character << 32 | run index), or null if any runs overlap,
+     *         i.e. if the list contains duplicate characters.
+     */
+    private static long[] getNonOverlappingRanges(char[] chars, int numRanges) {
+        final long[] ranges = new long[numRanges];
+        final char[] lastChars = new char[numRanges];
+        for (int i = 0, range = -1; i < chars.length; i++) {
+            if (i == 0 || chars[i] != chars[i - 1] + 1) {
+                ranges[++range] = ((long) chars[i] << 32) | range;
+            }
+            lastChars[range] = chars[i];
+        }
+
+        Arrays.sort(ranges);
+        for (int i = 1; i < numRanges; i++) {
+            final char previousLastChar = lastChars[(int) ranges[i - 1]];
+            if ((char) (ranges[i] >>> 32) <= previousLastChar) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
     /**
      * @param start the character that we want to animate from
      * @param end the character that we want to animate to
      * @param direction the preferred {@Link TickerView#ScrollingDirection}
-     * @return a valid pair of start and end indices, or null if the inputs are not supported.
+     * @return a valid pair of start and end indices packed into a long (see
+     *         {@link #getStartIndex} and {@link #getEndIndex}), or {@link #NO_INDICES} if the
+     *         inputs are not supported.
      */
-    CharacterIndices getCharacterIndices(char start, char end, TickerView.ScrollingDirection direction) {
-        int startIndex = getIndexOfChar(start);
-        int endIndex = getIndexOfChar(end);
+    long getCharacterIndices(char start, char end, TickerView.ScrollingDirection direction) {
+        final int startIndex = getIndexOfChar(start);
+        final int endIndex = getIndexOfChar(end);
 
         if (startIndex < 0 || endIndex < 0) {
-            return null;
+            return NO_INDICES;
+        } else if (transitionTable != null) {
+            return transitionTable[getTransitionTableIndex(direction, startIndex, endIndex)];
+        } else {
+            return computeCharacterIndices(startIndex, endIndex, direction);
         }
+    }
+
+    private int getTransitionTableIndex(TickerView.ScrollingDirection direction, int startIndex,
+            int endIndex) {
+        final int numIndices = numOriginalCharacters + 1;
+        return (direction.ordinal() * numIndices + startIndex) * numIndices + endIndex;
+    }
 
+    /**
+     * Adjusts the indices of the start and end characters (where 0 is
+     * {@link TickerUtils#EMPTY_CHAR}) to take the preferred direction and wrap-around into
+     * account.
+     */
+    private long computeCharacterIndices(int startIndex, int endIndex,
+            TickerView.ScrollingDirection direction) {
         switch (direction) {
             case DOWN:
-                if (end == TickerUtils.EMPTY_CHAR) {
-                    endIndex = characterList.length;
+                if (endIndex == 0) {
+                    endIndex = getSize();
                 } else if (endIndex < startIndex) {
                     endIndex += numOriginalCharacters;
                 }
@@ -92,7 +283,7 @@ class TickerCharacterList {
                 break;
             case ANY:
                 // see if the wrap-around animation is shorter distance than the original animation
-                if (start != TickerUtils.EMPTY_CHAR && end != TickerUtils.EMPTY_CHAR) {
+                if (startIndex != 0 && endIndex != 0) {
                     if (endIndex < startIndex) {
                         // If we are potentially going backwards
                         final int nonWrapDistance = startIndex - endIndex;
@@ -113,34 +304,87 @@ class TickerCharacterList {
                 break;
         }
 
-        return new CharacterIndices(startIndex, endIndex);
+        return ((long) startIndex << 32) | endIndex;
+    }
+
+    static int getStartIndex(long indices) {
+        return (int) (indices >>> 32);
     }
 
-    Set<Character> getSupportedCharacters() {
-       return characterIndicesMap.keySet();
+    static int getEndIndex(long indices) {
+        return (int) indices;
     }
 
+    /**
+     * @return the doubled character list (EMPTY, list, list) that the indices returned by
+     *         {@link #getCharacterIndices} refer to, or null if this list is too large to keep
+     *         it around. Use {@link #getCharacter} in that case.
+     */
     char[] getCharacterList() {
         return characterList;
     }
 
+    /**
+     * @return the number of characters in the doubled character list (EMPTY, list, list).
+     */
+    int getSize() {
+        return numOriginalCharacters * 2 + 1;
+    }
+
+    /**
+     * @param index an index into the doubled character list (EMPTY, list, list), must be
+     *              between 0 and {@link #getSize()} (exclusive).
+     * @return the character at that index.
+     */
+    char getCharacter(int index) {
+        if (characterList != null) {
+            return characterList[index];
+        } else if (index == 0) {
+            return TickerUtils.EMPTY_CHAR;
+        }
+
+        final int listIndex = (index - 1) % numOriginalCharacters;
+        if (latin1Characters != null) {
+            return (char) (latin1Characters[listIndex] & 0xFF);
+        } else if (characters != null) {
+            return characters[listIndex];
+        } else {
+            int range = Arrays.binarySearch(rangeListOffsets, listIndex);
+            if (range < 0) {
+                // Not the start of a range, use the range before the insertion point.
+                range = -range - 2;
+            }
+            return (char) (rangeFirstChars[range] + listIndex - rangeListOffsets[range]);
+        }
+    }
+
     private int getIndexOfChar(char c) {
         if (c == TickerUtils.EMPTY_CHAR) {
             return 0;
-        } else if (characterIndicesMap.containsKey(c)) {
-            return characterIndicesMap.get(c) + 1;
+        }
+
+        final int index;
+        if (sortedRangeFirstChars != null) {
+            index = getIndexOfCharInRanges(c);
+        } else if (directIndices != null) {
+            final int offset = c - minChar;
+            index = offset >= 0 && offset < directIndices.length ? directIndices[offset] : -1;
         } else {
-            return -1;
+            final int slot = TickerCharTable.findSlot(hashedChars, c);
+            index = hashedChars[slot] == c ? hashedIndices[slot] : -1;
         }
+        return index < 0 ? -1 : index + 1;
     }
 
-    class CharacterIndices {
-        final int startIndex;
-        final int endIndex;
-
-        public CharacterIndices(int startIndex, int endIndex) {
-            this.startIndex = startIndex;
-            this.endIndex = endIndex;
+    private int getIndexOfCharInRanges(char c) {
+        int range = Arrays.binarySearch(sortedRangeFirstChars, c);
+        if (range < 0) {
+            // Not the start of a range, check the range before the insertion point.
+            range = -range - 2;
+            if (range < 0 || c > sortedRangeLastChars[range]) {
+                return -1;
+            }
         }
+        return sortedRangeListOffsets[range] + c - sortedRangeFirstChars[range];
     }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+/**
+ * Interns the recently used {@link TickerCharacterList} and {@link TickerCharacterListSet}
+ * instances so that they can be shared between ticker views instead of being rebuilt by every
+ * view. This also lets {@link TickerView#prewarm} build the lists ahead of time.
+ *
+ * <p>This class is not thread-safe and should only be accessed from the main thread.
+ */
+class TickerCharacterListRegistry {
+    private static final int MAX_SIZE = 32;
+
+    private static final TickerLruCache<String, TickerCharacterList> characterLists =
+            new TickerLruCache<>(MAX_SIZE);
+    private static final TickerLruCache<String, TickerCharacterListSet> characterListSets =
+            new TickerLruCache<>(MAX_SIZE);
+
+    private TickerCharacterListRegistry() {}
+
+    /**
+     * @return the character list for the given string, creating it if necessary.
+     */
+    static TickerCharacterList obtain(String characterList) {
+        TickerCharacterList result = characterLists.get(characterList);
+        if (result == null) {
+            result = new TickerCharacterList(characterList);
+            characterLists.put(characterList, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the character list set for the given strings, creating it if necessary.
+     */
+    static TickerCharacterListSet obtainSet(String... characterLists) {
+        // Obtaining the lists first rejects the ones that contain EMPTY_CHAR, so it's safe to use
+        // as the delimiter below.
+        final TickerCharacterList[] lists = new TickerCharacterList[characterLists.length];
+        for (int i = 0; i < characterLists.length; i++) {
+            lists[i] = obtain(characterLists[i]);
+        }
+
+        final StringBuilder keyBuilder = new StringBuilder();
+        for (int i = 0; i < characterLists.length; i++) {
+            if (i > 0) {
+                keyBuilder.append(TickerUtils.EMPTY_CHAR);
+            }
+            keyBuilder.append(characterLists[i]);
+        }
+        final String key = keyBuilder.toString();
+
+        TickerCharacterListSet result = characterListSets.get(key);
+        if (result == null) {
+            result = new TickerCharacterListSet(lists);
+            characterListSets.put(key, result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+import java.util.BitSet;
+
+/**
+ * The immutable group of {@link TickerCharacterList} that a ticker was configured with via
+ * {@link TickerView#setCharacterLists}, along with the indices that are derived from the whole
+ * group. Instances are interned by {@link TickerCharacterListRegistry} so that every ticker
+ * configured with the same lists shares them.
+ */
+class TickerCharacterListSet {
+    // Routing uses one bit per list, sets with more lists fall back to scanning every list.
+    private static final int MAX_ROUTED_LISTS = 64;
+
+    private final TickerCharacterList[] characterLists;
+    private final BitSet supportedCharacterBits;
+
+    // Linear-probing table that maps each supported character to the bitmask of the lists that
+    // contain it, EMPTY_CHAR marks free slots. Null if there are too many lists to route.
+    private final char[] routingChars;
+    private final long[] routingMasks;
+
+    TickerCharacterListSet(TickerCharacterList[] characterLists) {
+        this.characterLists = characterLists;
+
+        this.supportedCharacterBits = new BitSet();
+        for (int i = 0; i < characterLists.length; i++) {
+            // Each character once, from the first copy in the doubled list (EMPTY, list, list)
+            final TickerCharacterList characterList = characterLists[i];
+            for (int j = 1, size = characterList.getSize() / 2; j <= size; j++) {
+                supportedCharacterBits.set(characterList.getCharacter(j));
+            }
+        }
+
+        if (characterLists.length <= MAX_ROUTED_LISTS) {
+            final int capacity =
+                    TickerCharTable.getCapacity(supportedCharacterBits.cardinality());
+            this.routingChars = new char[capacity];
+            this.routingMasks = new long[capacity];
+            for (int i = 0; i < characterLists.length; i++) {
+                final TickerCharacterList characterList = characterLists[i];
+                for (int j = 1, size = characterList.getSize() / 2; j <= size; j++) {
+                    final char c = characterList.getCharacter(j);
+                    final int slot = TickerCharTable.findSlot(routingChars, c);
+                    routingChars[slot] = c;
+                    routingMasks[slot] |= 1L << i;
+                }
+            }
+        } else {
+            this.routingChars = null;
+            this.routingMasks = null;
+        }
+    }
+
+    /**
+     * @return the character lists in this set. The array is shared and must not be modified.
+     */
+    TickerCharacterList[] getCharacterLists() {
+        return characterLists;
+    }
+
+    /**
+     * @return the characters that are contained in at least one of the character lists, with
+     *         the bit at the index of each character set. The bit set is shared and must not be
+     *         modified.
+     */
+    BitSet getSupportedCharacterBits() {
+        return supportedCharacterBits;
+    }
+
+    /**
+     * Picks the character list to animate from {@param start} to {@param end} with. If more
+     * than one list contains both characters, the list that scrolls through the fewest
+     * characters wins, and ties go to the latter list.
+     *
+     * @return the index of the list in {@link #getCharacterLists()}, or -1 if no list contains
+     *         both characters.
+     */
+    int findCharacterList(char start, char end, TickerView.ScrollingDirection direction) {
+        if (routingChars == null) {
+            return findCharacterList(start, end, direction, -1L);
+        }
+
+        final long candidates = getRoutingMask(start) & getRoutingMask(end);
+        if (candidates == 0L) {
+            return -1;
+        } else if ((candidates & (candidates - 1)) == 0L) {
+            // Only one list contains both characters
+            return Long.numberOfTrailingZeros(candidates);
+        } else {
+            return findCharacterList(start, end, direction, candidates);
+        }
+    }
+
+    private int findCharacterList(char start, char end, TickerView.ScrollingDirection direction,
+            long candidates) {
+        int result = -1;
+        int resultDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < characterLists.length; i++) {
+            if (i < MAX_ROUTED_LISTS && (candidates & (1L << i)) == 0L) {
+                continue;
+            }
+
+            final long indices = characterLists[i].getCharacterIndices(start, end, direction);
+            if (indices != TickerCharacterList.NO_INDICES) {
+                final int distance = Math.abs(TickerCharacterList.getEndIndex(indices)
+                        - TickerCharacterList.getStartIndex(indices));
+                if (distance <= resultDistance) {
+                    result = i;
+                    resultDistance = distance;
+                }
+            }
+        }
+        return result;
+    }
+
+    private long getRoutingMask(char c) {
+        if (c == TickerUtils.EMPTY_CHAR) {
+            // Every list supports animating from and to nothing
+            return -1L;
+        }
+
+        final int slot = TickerCharTable.findSlot(routingChars, c);
+        return routingChars[slot] == c ? routingMasks[slot] : 0L;
+    }
+}
@@ -16,8 +16,10 @@
 
 package com.robinhood.ticker;
 
+import android.annotation.TargetApi;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.os.Build;
 
 /**
  * Represents a column of characters to be drawn on the screen. This class primarily handles
@@ -27,46 +29,73 @@ import android.graphics.Paint;
  * @author Jin Cao, Robinhood
  */
 class TickerColumn {
-    private TickerCharacterList[] characterLists;
+    private TickerCharacterListSet characterListSet;
     private final TickerDrawMetrics metrics;
 
-    private char currentChar = TickerUtils.EMPTY_CHAR;
-    private char targetChar = TickerUtils.EMPTY_CHAR;
+    // The characters, transition indices, drawing state and widths of the column live in this
+    // slot of the store, see TickerColumnStore.
+    private TickerColumnStore store;
+    private int slot;
 
-    // The indices characters simply signify what positions are for the current and target
+    // The indices in the store simply signify what positions are for the current and target
     // characters in the assigned characterList. This tells us how to animate from the current
-    // to the target characters.
+    // to the target characters. Large character lists don't keep a char[] around, in which
+    // case currentCharacterList is null and the characters come from currentLargeCharacterList.
     private char[] currentCharacterList;
-    private int startIndex;
-    private int endIndex;
-
-    // Drawing state variables that get updated whenever animation progress gets updated.
-    private int bottomCharIndex;
-    private float bottomDelta;
-    private float charHeight;
-
-    // Drawing state variables for handling size transition
-    private float sourceWidth, currentWidth, targetWidth, minimumRequiredWidth;
-
-    // The bottom delta variables signifies the vertical offset that the bottom drawn character
-    // is seeing. If the delta is 0, it means that the character is perfectly centered. If the
-    // delta is negative, it means that the bottom character is poking out from the bottom and
-    // part of the top character is visible. The delta should never be positive because it means
-    // that the bottom character is not actually the bottom character.
-    private float currentBottomDelta;
-    private float previousBottomDelta;
-    private int directionAdjustment;
-
-    TickerColumn(TickerCharacterList[] characterLists, TickerDrawMetrics metrics) {
-        this.characterLists = characterLists;
+    private TickerCharacterList currentLargeCharacterList;
+    // The list the current characters come from, null for the default animation between
+    // characters that no list contains.
+    private TickerCharacterList currentTickerCharacterList;
+    private int currentCharacterListSize;
+
+    // Holds the character to draw when drawing from currentLargeCharacterList.
+    private final char[] drawBuffer = new char[1];
+    // Only created on API 29+, once the column is first drawn as a render node.
+    private TickerColumnRenderNode renderNode;
+
+    TickerColumn(TickerCharacterListSet characterListSet, TickerDrawMetrics metrics) {
+        this(characterListSet, metrics, new TickerColumnStore(1), 0);
+    }
+
+    TickerColumn(TickerCharacterListSet characterListSet, TickerDrawMetrics metrics,
+            TickerColumnStore store, int slot) {
+        this.characterListSet = characterListSet;
         this.metrics = metrics;
+        this.store = store;
+        this.slot = slot;
+        store.clear(slot);
+    }
+
+    /**
+     * Puts the column back into the state it was constructed in, so that it can be reused for
+     * a new column with {@param characterListSet} in {@param slot} of {@param store}.
+     */
+    void reset(TickerCharacterListSet characterListSet, TickerColumnStore store, int slot) {
+        this.characterListSet = characterListSet;
+        this.store = store;
+        this.slot = slot;
+        store.clear(slot);
+        currentCharacterList = null;
+        currentLargeCharacterList = null;
+        currentTickerCharacterList = null;
+        currentCharacterListSize = 0;
+    }
+
+    /**
+     * Moves the state of the column to {@param slot} of {@param store}. The old slot is no
+     * longer used by this column afterwards.
+     */
+    void moveTo(TickerColumnStore store, int slot) {
+        store.copy(this.store, this.slot, slot);
+        this.store = store;
+        this.slot = slot;
     }
 
     /**
      * Updates the characterLists used in the column.
      */
-    void setCharacterLists(TickerCharacterList[] characterLists) {
-        this.characterLists = characterLists;
+    void setCharacterLists(TickerCharacterListSet characterListSet) {
+        this.characterListSet = characterListSet;
     }
 
     /**
@@ -75,137 +104,133 @@ class TickerColumn {
      * {@link #setAnimationProgress(float)}.
      */
     void setTargetChar(char targetChar) {
+        final TickerColumnStore store = this.store;
+        final int slot = this.slot;
+
         // Set the current and target characters for the animation
-        this.targetChar = targetChar;
-        this.sourceWidth = this.currentWidth;
-        this.targetWidth = metrics.getCharWidth(targetChar);
-        this.minimumRequiredWidth = Math.max(this.sourceWidth, this.targetWidth);
+        store.targetChars[slot] = targetChar;
+        final float sourceWidth = store.currentWidths[slot];
+        final float targetWidth = metrics.getCharWidth(targetChar);
+        store.sourceWidths[slot] = sourceWidth;
+        store.targetWidths[slot] = targetWidth;
+        store.minimumRequiredWidths[slot] = Math.max(sourceWidth, targetWidth);
 
         // Calculate the current indices
-        setCharacterIndices();
+        setCharacterIndices(store.currentChars[slot], targetChar);
+        final int startIndex = store.startIndices[slot];
+        final int endIndex = store.endIndices[slot];
 
         final boolean scrollDown = endIndex >= startIndex;
-        directionAdjustment = scrollDown ? 1 : -1;
+        store.directionAdjustments[slot] = scrollDown ? 1 : -1;
+
+        // Compress the path if it is longer than allowed, keeping the rows closest to both ends
+        final int numRows = Math.abs(endIndex - startIndex);
+        final int maxRows = metrics.getMaxRowsPerTransition();
+        if (maxRows > 0 && numRows > maxRows) {
+            store.numPathRows[slot] = maxRows;
+            store.numHeadRows[slot] = maxRows / 2;
+        } else {
+            store.numPathRows[slot] = store.numHeadRows[slot] = numRows;
+        }
 
         // Save the currentBottomDelta as previousBottomDelta in case this call to setTargetChar
         // interrupted a previously running animation. The deltas will then be used to compute
         // offset so that the interruption feels smooth on the UI.
-        previousBottomDelta = currentBottomDelta;
-        currentBottomDelta = 0f;
+        store.previousBottomDeltas[slot] = store.currentBottomDeltas[slot];
+        store.currentBottomDeltas[slot] = 0f;
+        store.settled[slot] = false;
     }
 
     char getCurrentChar() {
-        return currentChar;
+        return store.currentChars[slot];
     }
 
     char getTargetChar() {
-        return targetChar;
+        return store.targetChars[slot];
     }
 
     float getCurrentWidth() {
         checkForDrawMetricsChanges();
-        return currentWidth;
+        return store.currentWidths[slot];
     }
 
     float getMinimumRequiredWidth() {
         checkForDrawMetricsChanges();
-        return minimumRequiredWidth;
+        return store.minimumRequiredWidths[slot];
     }
 
     /**
-     * A helper method for populating {@link #startIndex} and {@link #endIndex} given the
-     * current and target characters for the animation.
+     * A helper method for populating the start and end indices in the store given the current
+     * and target characters for the animation.
      */
-    private void setCharacterIndices() {
+    private void setCharacterIndices(char currentChar, char targetChar) {
         currentCharacterList = null;
-
-        for (int i = 0; i < characterLists.length; i++) {
-            final TickerCharacterList.CharacterIndices indices =
-                    characterLists[i].getCharacterIndices(currentChar, targetChar, metrics.getPreferredScrollingDirection());
-            if (indices != null) {
-                this.currentCharacterList = this.characterLists[i].getCharacterList();
-                this.startIndex = indices.startIndex;
-                this.endIndex = indices.endIndex;
-            }
+        currentLargeCharacterList = null;
+        currentTickerCharacterList = null;
+
+        final TickerView.ScrollingDirection direction = metrics.getPreferredScrollingDirection();
+        final int listIndex = characterListSet.findCharacterList(currentChar, targetChar, direction);
+        if (listIndex >= 0) {
+            final TickerCharacterList characterList = characterListSet.getCharacterLists()[listIndex];
+            final long indices = characterList.getCharacterIndices(currentChar, targetChar, direction);
+            this.currentTickerCharacterList = characterList;
+            this.currentCharacterList = characterList.getCharacterList();
+            this.currentLargeCharacterList = currentCharacterList == null ? characterList : null;
+            this.currentCharacterListSize = characterList.getSize();
+            store.startIndices[slot] = TickerCharacterList.getStartIndex(indices);
+            store.endIndices[slot] = TickerCharacterList.getEndIndex(indices);
         }
 
         // If we didn't find a list that contains both characters, just perform a default animation
         // going straight from source to target
-        if (currentCharacterList == null) {
+        if (listIndex < 0) {
             if (currentChar == targetChar) {
                 currentCharacterList = new char[] {currentChar};
-                startIndex = endIndex = 0;
+                store.startIndices[slot] = store.endIndices[slot] = 0;
             } else {
                 currentCharacterList = new char[] {currentChar, targetChar};
-                startIndex = 0;
-                endIndex = 1;
+                store.startIndices[slot] = 0;
+                store.endIndices[slot] = 1;
             }
+            currentCharacterListSize = currentCharacterList.length;
         }
     }
 
     void onAnimationEnd() {
         checkForDrawMetricsChanges();
-        minimumRequiredWidth = currentWidth;
+        store.minimumRequiredWidths[slot] = store.currentWidths[slot];
     }
 
-    private void checkForDrawMetricsChanges() {
-        final float currentTargetWidth = metrics.getCharWidth(targetChar);
+    void checkForDrawMetricsChanges() {
+        final float currentTargetWidth = metrics.getCharWidth(store.targetChars[slot]);
+        final float targetWidth = store.targetWidths[slot];
         // Only resize due to DrawMetrics changes when we are done with whatever animation we
         // are running.
-        if (currentWidth == targetWidth && targetWidth != currentTargetWidth) {
-            this.minimumRequiredWidth = this.currentWidth = this.targetWidth = currentTargetWidth;
+        if (store.currentWidths[slot] == targetWidth && targetWidth != currentTargetWidth) {
+            store.minimumRequiredWidths[slot] = store.currentWidths[slot] =
+                    store.targetWidths[slot] = currentTargetWidth;
         }
     }
 
-    void setAnimationProgress(float animationProgress) {
-        if (animationProgress == 1f) {
-            // Animation finished (or never started), set to stable state.
-            this.currentChar = this.targetChar;
-            currentBottomDelta = 0f;
-            previousBottomDelta = 0f;
-        }
-
-        final float charHeight = metrics.getCharHeight();
-
-        // First let's find the total height of this column between the start and end chars.
-        final float totalHeight = charHeight * Math.abs(endIndex - startIndex);
-
-        // The current base is then the part of the total height that we have progressed to
-        // from the animation. For example, there might be 5 characters, each character is
-        // 2px tall, so the totalHeight is 10. If we are at 50% progress, then our baseline
-        // in this column is at 5 out of 10 (which is the 3rd character with a -50% offset
-        // to the baseline).
-        final float currentBase = animationProgress * totalHeight;
-
-        // Given the current base, we now can find which character should drawn on the bottom.
-        // Note that this position is a float. For example, if the bottomCharPosition is
-        // 4.5, it means that the bottom character is the 4th character, and it has a -50%
-        // offset relative to the baseline.
-        final float bottomCharPosition = currentBase / charHeight;
-
-        // By subtracting away the integer part of bottomCharPosition, we now have the
-        // percentage representation of the bottom char's offset.
-        final float bottomCharOffsetPercentage = bottomCharPosition - (int) bottomCharPosition;
-
-        // We might have interrupted a previous animation if previousBottomDelta is not 0f.
-        // If that's the case, we need to take this delta into account so that the previous
-        // character offset won't be wiped away when we start a new animation.
-        // We multiply by the inverse percentage so that the offset contribution from the delta
-        // progresses along with the rest of the animation (from full delta to 0).
-        final float additionalDelta = previousBottomDelta * (1f - animationProgress);
-
-        // Now, using the bottom char's offset percentage and the delta we have from the
-        // previous animation, we can now compute what's the actual offset of the bottom
-        // character in the column relative to the baseline.
-        bottomDelta = bottomCharOffsetPercentage * charHeight * directionAdjustment
-                + additionalDelta;
-
-        // Figure out what the actual character index is in the characterList, and then
-        // draw the character with the computed offset.
-        bottomCharIndex = startIndex + ((int) bottomCharPosition * directionAdjustment);
+    /**
+     * Computes the frame at {@param animationProgress}. {@link TickerColumnManager} does this for
+     * all of its columns at once, see {@link TickerColumnStore#setAnimationProgress}.
+     *
+     * @return whether the column became settled or stopped being settled, see
+     *         {@link #isSettled()}.
+     */
+    boolean setAnimationProgress(float animationProgress) {
+        return store.setAnimationProgress(slot, slot + 1, animationProgress,
+                metrics.getCharHeight());
+    }
 
-        this.charHeight = charHeight;
-        this.currentWidth = sourceWidth + (targetWidth - sourceWidth) * animationProgress;
+    /**
+     * @return whether the column shows nothing but the target character at the baseline and at
+     *         its full width. The rows above and below are outside of the clipped area, so the
+     *         caller may draw the target character in its place instead of calling {@link #draw}.
+     */
+    boolean isSettled() {
+        return store.settled[slot];
     }
 
     /**
@@ -215,34 +240,159 @@ class TickerColumn {
      * in the correct position on the canvas.
      */
     void draw(Canvas canvas, Paint textPaint) {
-        if (drawText(canvas, textPaint, currentCharacterList, bottomCharIndex, bottomDelta)) {
-            // Save the current drawing state in case our animation gets interrupted
-            if (bottomCharIndex >= 0) {
-                currentChar = currentCharacterList[bottomCharIndex];
-            }
-            currentBottomDelta = bottomDelta;
-        }
+        draw(canvas, textPaint, 0f);
+    }
 
+    /**
+     * Same as {@link #draw(Canvas, Paint)} except that the column is drawn at {@param x} from
+     * the left, so that the caller doesn't need to translate the canvas for every column.
+     */
+    void draw(Canvas canvas, Paint textPaint, float x) {
+        saveDrawingState();
+
+        final TickerColumnStore store = this.store;
+        final int slot = this.slot;
+        final int bottomRow = store.bottomRows[slot];
+        final float bottomDelta = store.bottomDeltas[slot];
+        final float charHeight = store.charHeight;
+        final int directionAdjustment = store.directionAdjustments[slot];
+        drawText(canvas, textPaint, x, store.bottomCharIndices[slot], bottomDelta);
         // Draw the corresponding top and bottom characters if applicable
-        drawText(canvas, textPaint, currentCharacterList, bottomCharIndex + 1,
+        drawText(canvas, textPaint, x,
+                store.getCharacterIndexForRow(slot, bottomRow + directionAdjustment),
                 bottomDelta - charHeight);
         // Drawing the bottom character here might seem counter-intuitive because we've been
         // computing for the bottom character this entire time. But the bottom character
         // computed above might actually be above the baseline if we interrupted a previous
         // animation that gave us a positive additionalDelta.
-        drawText(canvas, textPaint, currentCharacterList, bottomCharIndex - 1,
+        drawText(canvas, textPaint, x,
+                store.getCharacterIndexForRow(slot, bottomRow - directionAdjustment),
                 bottomDelta + charHeight);
     }
 
     /**
-     * @return whether the text was successfully drawn on the canvas
+     * Same as {@link #draw} except that the rows are copied from the glyph strip of the current
+     * character list at {@param x}, if glyph strips are enabled and the list has one. See
+     * {@link TickerDrawMetrics#getGlyphStrip}.
+     *
+     * @return whether the column was drawn. If not, the caller should draw it as text.
      */
-    private boolean drawText(Canvas canvas, Paint textPaint, char[] characterList,
-            int index, float verticalOffset) {
-        if (index >= 0 && index < characterList.length) {
-            canvas.drawText(characterList, index, 1, 0f, verticalOffset, textPaint);
-            return true;
+    boolean drawGlyphStrip(Canvas canvas, Paint textPaint, float x) {
+        final TickerGlyphStrip glyphStrip = currentTickerCharacterList != null
+                ? metrics.getGlyphStrip(currentTickerCharacterList) : null;
+        if (glyphStrip == null) {
+            return false;
+        }
+        saveDrawingState();
+
+        final TickerColumnStore store = this.store;
+        final int slot = this.slot;
+        final int bottomRow = store.bottomRows[slot];
+        final float bottomDelta = store.bottomDeltas[slot];
+        final float charHeight = store.charHeight;
+        final int directionAdjustment = store.directionAdjustments[slot];
+        drawGlyphStripRow(canvas, textPaint, glyphStrip, x, store.bottomCharIndices[slot],
+                bottomDelta);
+        drawGlyphStripRow(canvas, textPaint, glyphStrip, x,
+                store.getCharacterIndexForRow(slot, bottomRow + directionAdjustment),
+                bottomDelta - charHeight);
+        drawGlyphStripRow(canvas, textPaint, glyphStrip, x,
+                store.getCharacterIndexForRow(slot, bottomRow - directionAdjustment),
+                bottomDelta + charHeight);
+        return true;
+    }
+
+    /**
+     * Same as {@link #draw} except that the column is drawn as a render node that holds every
+     * row of the current character list, see {@link TickerColumnRenderNode}. Animating the
+     * column then only moves the node around, and it is only recorded again when the character
+     * list or {@param paintGeneration} changes.
+     *
+     * @return whether the column was drawn. This isn't the case for large character lists, for
+     *         transitions between characters that no list supports (their two-character list is
+     *         created for every transition, so the node would be recorded again every time) and
+     *         for transitions that skip rows (see {@link TickerDrawMetrics#getMaxRowsPerTransition}),
+     *         which the caller should draw some other way.
+     */
+    @TargetApi(Build.VERSION_CODES.Q)
+    boolean drawRenderNode(Canvas canvas, Paint textPaint, float x, int paintGeneration) {
+        if (currentTickerCharacterList == null || currentCharacterList == null
+                || store.numHeadRows[slot] != store.numPathRows[slot]) {
+            return false;
+        }
+        if (renderNode == null) {
+            renderNode = new TickerColumnRenderNode();
+        }
+        saveDrawingState();
+
+        final TickerGlyphStrip glyphStrip = metrics.getGlyphStrip(currentTickerCharacterList);
+        renderNode.draw(canvas, textPaint, metrics, currentCharacterList, glyphStrip,
+                store.charHeight, paintGeneration, store.bottomCharIndices[slot], x,
+                store.bottomDeltas[slot]);
+        return true;
+    }
+
+    /**
+     * Moves the render node that the column was last drawn with by {@link #drawRenderNode} to the
+     * current frame without drawing the column again. This is only valid if the column was
+     * drawn as a render node and only its vertical position changed since then, i.e. its target
+     * character, widths and the draw metrics are the same.
+     */
+    @TargetApi(Build.VERSION_CODES.Q)
+    void updateRenderNode() {
+        saveDrawingState();
+        renderNode.setVerticalPosition(store.charHeight, store.bottomCharIndices[slot],
+                store.bottomDeltas[slot]);
+    }
+
+    // VisibleForTesting
+    void setRenderNode(TickerColumnRenderNode renderNode) {
+        this.renderNode = renderNode;
+    }
+
+    /**
+     * Save the current drawing state in case our animation gets interrupted.
+     */
+    private void saveDrawingState() {
+        final int bottomCharIndex = store.bottomCharIndices[slot];
+        if (bottomCharIndex >= 0 && bottomCharIndex < currentCharacterListSize) {
+            store.currentChars[slot] = getCharacter(bottomCharIndex);
+            store.currentBottomDeltas[slot] = store.bottomDeltas[slot];
+        }
+    }
+
+    private char getCharacter(int index) {
+        return currentCharacterList != null
+                ? currentCharacterList[index] : currentLargeCharacterList.getCharacter(index);
+    }
+
+    private void drawGlyphStripRow(Canvas canvas, Paint textPaint, TickerGlyphStrip glyphStrip,
+            float x, int index, float verticalOffset) {
+        if (isRowVisible(index, verticalOffset)) {
+            glyphStrip.draw(canvas, index, x, verticalOffset, textPaint);
+        }
+    }
+
+    /**
+     * The canvas is clipped to a single row, so a row is only visible if it is less than a row
+     * away from the baseline. This is the case for at most two rows at a time, and only for the
+     * bottom row when the column is at rest.
+     */
+    private boolean isRowVisible(int index, float verticalOffset) {
+        return index >= 0 && index < currentCharacterListSize
+                && Math.abs(verticalOffset) < store.charHeight;
+    }
+
+    private void drawText(Canvas canvas, Paint textPaint, float x, int index,
+            float verticalOffset) {
+        if (isRowVisible(index, verticalOffset)) {
+            if (currentCharacterList != null) {
+                canvas.drawText(currentCharacterList, index, 1, x, verticalOffset, textPaint);
+            } else {
+                // Large character lists produce the characters on demand
+                drawBuffer[0] = currentLargeCharacterList.getCharacter(index);
+                canvas.drawText(drawBuffer, 0, 1, x, verticalOffset, textPaint);
+            }
         }
-        return false;
     }
 }
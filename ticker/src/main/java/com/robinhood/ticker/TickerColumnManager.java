@@ -16,12 +16,12 @@
 
 package com.robinhood.ticker;
 
+import android.annotation.TargetApi;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.os.Build;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * In ticker, each character in the rendered text is represented by a {@link TickerColumn}. The
@@ -34,82 +34,216 @@ import java.util.Set;
  */
 @SuppressWarnings("ForLoopReplaceableByForEach")
 class TickerColumnManager {
-    final ArrayList<TickerColumn> tickerColumns = new ArrayList<>();
+    static final char DEFAULT_DECIMAL_SEPARATOR = '.';
+    private static final int MAX_POOLED_COLUMNS = 16;
+
+    ArrayList<TickerColumn> tickerColumns = new ArrayList<>();
+    // The columns for the new text are built up in here and then swapped with tickerColumns.
+    private ArrayList<TickerColumn> nextColumns = new ArrayList<>();
+    // The state of tickerColumns in display order, one slot per column, so that each frame is
+    // computed in a single pass over primitive arrays. The state of nextColumns is built up in
+    // nextColumnStore and swapped along with the columns.
+    private TickerColumnStore columnStore = new TickerColumnStore(0);
+    private TickerColumnStore nextColumnStore = new TickerColumnStore(0);
+    // Columns that were removed from tickerColumns, kept around to be reused for the next
+    // inserted columns since texts tend to gain and lose the same few characters over and over.
+    private final ArrayList<TickerColumn> columnPool = new ArrayList<>();
     private final TickerDrawMetrics metrics;
+    private final TickerTransitionPlanCache transitionPlanCache;
+
+    private TickerCharacterListSet characterListSet;
+    private boolean numericAlignment;
+    private char decimalSeparator = DEFAULT_DECIMAL_SEPARATOR;
+    private boolean renderNodeRendering;
+    // Bumped whenever the text paint changes, so that recorded columns know to record again.
+    private int textPaintGeneration;
+    // Whether the last draw drew every column outside of the settled runs from a render node,
+    // and none of the column widths can change until the columns change. Frames that only
+    // move those columns can then be shown by moving their nodes, see #updateRenderNodes.
+    private boolean drewRenderNodesOnly;
+
+    // Scratch state reused across calls to setText so that diffing the text doesn't allocate.
+    // Recently seen transitions are replayed from the transition plan cache instead.
+    private final LevenshteinUtils.Workspace workspace = new LevenshteinUtils.Workspace();
+    private final ColumnActionApplier columnActionApplier = new ColumnActionApplier();
+    private char[] currentTextBuffer = new char[0];
 
-    private TickerCharacterList[] characterLists;
-    private Set<Character> supportedCharacters;
+    // Runs of consecutive settled columns are drawn with a single drawTextRun call on API 23+.
+    // runLengths holds the length of the run starting at each column (0 if the column is drawn on
+    // its own), runChars the target characters of the columns and runWidths the width of each
+    // run. Columns only settle or unsettle on setText and setAnimationProgress, so the runs are
+    // only recomputed on the next draw after one of those changed anything.
+    private static final float MAX_RUN_WIDTH_ERROR = 0.5f;
+    private static final char MAX_RUN_CHAR = '\u024f';
+    private final boolean coalesceSettledRuns;
+    private char[] runChars = new char[0];
+    private int[] runLengths = new int[0];
+    private float[] runWidths = new float[0];
+    private boolean runsDirty = true;
 
     TickerColumnManager(TickerDrawMetrics metrics) {
+        this(metrics, TickerTransitionPlanCache.getShared());
+    }
+
+    TickerColumnManager(TickerDrawMetrics metrics, TickerTransitionPlanCache transitionPlanCache) {
+        this(metrics, transitionPlanCache, Build.VERSION.SDK_INT >= Build.VERSION_CODES.M);
+    }
+
+    /**
+     * @param coalesceSettledRuns whether runs of settled columns can be drawn as one piece of
+     *                            text, which needs {@link Canvas#drawTextRun} (API 23+).
+     */
+    // VisibleForTesting
+    TickerColumnManager(TickerDrawMetrics metrics, TickerTransitionPlanCache transitionPlanCache,
+            boolean coalesceSettledRuns) {
         this.metrics = metrics;
+        this.transitionPlanCache = transitionPlanCache;
+        this.coalesceSettledRuns = coalesceSettledRuns;
     }
 
     /**
      * @inheritDoc TickerView#setCharacterLists
      */
     void setCharacterLists(String... characterLists) {
-        this.characterLists = new TickerCharacterList[characterLists.length];
-        for (int i = 0; i < characterLists.length; i++) {
-            this.characterLists[i] = new TickerCharacterList(characterLists[i]);
-        }
-
-        this.supportedCharacters = new HashSet<>();
-        for (int i = 0; i < characterLists.length; i++) {
-            this.supportedCharacters.addAll(this.characterLists[i].getSupportedCharacters());
-        }
+        this.characterListSet = TickerCharacterListRegistry.obtainSet(characterLists);
+        drewRenderNodesOnly = false;
 
         // Update character lists in current columns
         for (TickerColumn tickerColumn : tickerColumns) {
-            tickerColumn.setCharacterLists(this.characterLists);
+            tickerColumn.setCharacterLists(characterListSet);
+        }
+    }
+
+    /**
+     * @inheritDoc TickerView#setNumericAlignment(boolean, char)
+     */
+    void setNumericAlignment(boolean numericAlignment, char decimalSeparator) {
+        this.numericAlignment = numericAlignment;
+        this.decimalSeparator = decimalSeparator;
+    }
+
+    boolean getNumericAlignment() {
+        return numericAlignment;
+    }
+
+    char getDecimalSeparator() {
+        return decimalSeparator;
+    }
+
+    /**
+     * @inheritDoc TickerView#setGlyphStripRendering
+     */
+    void setGlyphStripRendering(boolean glyphStripRendering) {
+        metrics.setGlyphStripRendering(glyphStripRendering);
+        runsDirty = true;
+        drewRenderNodesOnly = false;
+    }
+
+    boolean getGlyphStripRendering() {
+        return metrics.getGlyphStripRendering();
+    }
+
+    /**
+     * @inheritDoc TickerView#setRenderNodeRendering
+     */
+    void setRenderNodeRendering(boolean renderNodeRendering) {
+        this.renderNodeRendering = renderNodeRendering;
+        drewRenderNodesOnly = false;
+    }
+
+    boolean getRenderNodeRendering() {
+        return renderNodeRendering;
+    }
+
+    /**
+     * @inheritDoc TickerView#prewarm
+     */
+    void prewarm() {
+        if (characterListSet == null) {
+            throw new IllegalStateException("Need to call #setCharacterLists first.");
+        }
+        final TickerCharacterList[] characterLists = characterListSet.getCharacterLists();
+        for (int i = 0; i < characterLists.length; i++) {
+            metrics.prewarm(characterLists[i]);
         }
     }
 
     TickerCharacterList[] getCharacterLists() {
-        return characterLists;
+        return characterListSet == null ? null : characterListSet.getCharacterLists();
     }
 
     /**
      * Tell the column manager the new target text that it should display.
      */
     void setText(char[] text) {
-        if (characterLists == null) {
+        setText(text, text.length);
+    }
+
+    /**
+     * Same as {@link #setText(char[])} but only takes the first {@param textLength} characters
+     * of {@param text}, so that the caller can keep reusing a larger buffer.
+     */
+    void setText(char[] text, int textLength) {
+        if (characterListSet == null) {
             throw new IllegalStateException("Need to call #setCharacterLists first.");
         }
+        runsDirty = true;
+        drewRenderNodesOnly = false;
 
-        // First remove any zero-width columns
-        for (int i = 0; i < tickerColumns.size(); ) {
+        // First remove any zero-width columns, shifting the remaining ones down in a single pass
+        int remainingColumns = 0;
+        for (int i = 0, size = tickerColumns.size(); i < size; i++) {
             final TickerColumn tickerColumn = tickerColumns.get(i);
             if (tickerColumn.getCurrentWidth() > 0) {
-                i++;
+                tickerColumn.moveTo(columnStore, remainingColumns);
+                tickerColumns.set(remainingColumns++, tickerColumn);
             } else {
-                tickerColumns.remove(i);
+                recycleColumn(tickerColumn);
             }
         }
+        for (int i = tickerColumns.size() - 1; i >= remainingColumns; i--) {
+            tickerColumns.remove(i);
+        }
 
         // Use Levenshtein distance algorithm to figure out how to manipulate the columns
-        final int[] actions = LevenshteinUtils.computeColumnActions(
-                getCurrentText(), text, supportedCharacters
-        );
-        int columnIndex = 0;
-        int textIndex = 0;
-        for (int i = 0; i < actions.length; i++) {
-            switch (actions[i]) {
-                case LevenshteinUtils.ACTION_INSERT:
-                    tickerColumns.add(columnIndex,
-                            new TickerColumn(characterLists, metrics));
-                    // Intentional fallthrough
-                case LevenshteinUtils.ACTION_SAME:
-                    tickerColumns.get(columnIndex).setTargetChar(text[textIndex]);
-                    columnIndex++;
-                    textIndex++;
-                    break;
-                case LevenshteinUtils.ACTION_DELETE:
-                    tickerColumns.get(columnIndex).setTargetChar(TickerUtils.EMPTY_CHAR);
-                    columnIndex++;
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown action: " + actions[i]);
-            }
+        final int currentTextLength = tickerColumns.size();
+        if (currentTextBuffer.length < currentTextLength) {
+            currentTextBuffer = new char[Math.max(currentTextLength, currentTextBuffer.length * 2)];
+        }
+        for (int i = 0; i < currentTextLength; i++) {
+            currentTextBuffer[i] = tickerColumns.get(i).getCurrentChar();
+        }
+
+        // Every column either stays, is deleted or is inserted
+        nextColumnStore.ensureCapacity(currentTextLength + textLength);
+        columnActionApplier.reset(text);
+        transitionPlanCache.computeColumnActions(currentTextBuffer, currentTextLength,
+                text, textLength, characterListSet, numericAlignment, decimalSeparator,
+                workspace, columnActionApplier);
+        columnActionApplier.reset(null);
+
+        final ArrayList<TickerColumn> previousColumns = tickerColumns;
+        tickerColumns = nextColumns;
+        nextColumns = previousColumns;
+        nextColumns.clear();
+        final TickerColumnStore previousStore = columnStore;
+        columnStore = nextColumnStore;
+        nextColumnStore = previousStore;
+    }
+
+    private TickerColumn obtainColumn(TickerColumnStore store, int slot) {
+        final int poolSize = columnPool.size();
+        if (poolSize == 0) {
+            return new TickerColumn(characterListSet, metrics, store, slot);
+        }
+        final TickerColumn column = columnPool.remove(poolSize - 1);
+        column.reset(characterListSet, store, slot);
+        return column;
+    }
+
+    private void recycleColumn(TickerColumn column) {
+        if (columnPool.size() < MAX_POOLED_COLUMNS) {
+            columnPool.add(column);
         }
     }
 
@@ -118,12 +252,40 @@ class TickerColumnManager {
             final TickerColumn column = tickerColumns.get(i);
             column.onAnimationEnd();
         }
+        runsDirty = true;
+        drewRenderNodesOnly = false;
     }
 
-    void setAnimationProgress(float animationProgress) {
+    /**
+     * Needs to be called whenever the text paint changes in a way that affects measurements.
+     */
+    void onTextPaintMeasurementChanged() {
+        onTextPaintChanged();
         for (int i = 0, size = tickerColumns.size(); i < size; i++) {
-            final TickerColumn column = tickerColumns.get(i);
-            column.setAnimationProgress(animationProgress);
+            tickerColumns.get(i).checkForDrawMetricsChanges();
+        }
+        runsDirty = true;
+    }
+
+    /**
+     * Needs to be called whenever the text paint changes in any other way that affects drawing,
+     * e.g. its color.
+     */
+    void onTextPaintChanged() {
+        textPaintGeneration++;
+        drewRenderNodesOnly = false;
+    }
+
+    /**
+     * Computes the frame at {@param animationProgress} for every column in one pass over the
+     * column store. The columns measure their source and target widths in setText and only
+     * interpolate between them per frame, so the draw metrics aren't consulted here apart from
+     * the char height.
+     */
+    void setAnimationProgress(float animationProgress) {
+        if (columnStore.setAnimationProgress(0, tickerColumns.size(), animationProgress,
+                metrics.getCharHeight())) {
+            runsDirty = true;
         }
     }
 
@@ -136,32 +298,203 @@ class TickerColumnManager {
     }
 
     float getCurrentWidth() {
+        final float[] currentWidths = columnStore.currentWidths;
         float width = 0f;
         for (int i = 0, size = tickerColumns.size(); i < size; i++) {
-            width += tickerColumns.get(i).getCurrentWidth();
+            width += currentWidths[i];
         }
         return width;
     }
 
-    char[] getCurrentText() {
+    /**
+     * This method will draw onto the canvas the appropriate UI state of each column dictated
+     * by {@param animationProgress}. The columns are laid out from left to right starting at the
+     * canvas' origin, without translating the canvas.
+     */
+    void draw(Canvas canvas, Paint textPaint) {
+        if (runsDirty) {
+            computeSettledRuns(textPaint);
+        }
+
         final int size = tickerColumns.size();
-        final char[] currentText = new char[size];
-        for (int i = 0; i < size; i++) {
-            currentText[i] = tickerColumns.get(i).getCurrentChar();
+        final float[] currentWidths = columnStore.currentWidths;
+
+        // Render nodes can only be drawn with hardware acceleration
+        final boolean drawRenderNodes = renderNodeRendering
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && canvas.isHardwareAccelerated();
+
+        final float[] sourceWidths = columnStore.sourceWidths;
+        final float[] targetWidths = columnStore.targetWidths;
+        boolean renderNodesOnly = drawRenderNodes;
+        float x = 0f;
+        for (int i = 0; i < size; ) {
+            final int runLength = runLengths[i];
+            if (runLength > 0) {
+                drawTextRun(canvas, runChars, i, runLength, x, textPaint);
+                x += runWidths[i];
+                i += runLength;
+            } else {
+                final TickerColumn column = tickerColumns.get(i);
+                final boolean drawnAsRenderNode = drawRenderNodes
+                        && column.drawRenderNode(canvas, textPaint, x, textPaintGeneration);
+                if (!drawnAsRenderNode && !column.drawGlyphStrip(canvas, textPaint, x)) {
+                    column.draw(canvas, textPaint, x);
+                }
+                // The width of a column only changes during the animation if its source and
+                // target widths differ
+                renderNodesOnly &= drawnAsRenderNode && sourceWidths[i] == targetWidths[i];
+                x += currentWidths[i];
+                i++;
+            }
         }
-        return currentText;
+        drewRenderNodesOnly = renderNodesOnly;
     }
 
     /**
-     * This method will draw onto the canvas the appropriate UI state of each column dictated
-     * by {@param animationProgress}. As a side effect, this method will also translate the canvas
-     * accordingly for the draw procedures.
+     * Moves the render nodes of the columns to the frame set by {@link #setAnimationProgress}
+     * without drawing them again. This is only possible if the last call to {@link #draw} drew
+     * every column that isn't part of a settled run from a render node, and nothing but the
+     * vertical positions of those columns changed since then: no column settled or stopped
+     * being settled, no width can change and neither the text, the text paint nor the way the
+     * columns are drawn changed.
+     *
+     * @return whether the nodes were moved. If not, the caller needs to draw the columns again.
      */
-    void draw(Canvas canvas, Paint textPaint) {
-        for (int i = 0, size = tickerColumns.size(); i < size; i++) {
-            final TickerColumn column = tickerColumns.get(i);
-            column.draw(canvas, textPaint);
-            canvas.translate(column.getCurrentWidth(), 0f);
+    boolean updateRenderNodes() {
+        if (!drewRenderNodesOnly || runsDirty) {
+            return false;
+        }
+        for (int i = 0, size = tickerColumns.size(); i < size; ) {
+            final int runLength = runLengths[i];
+            if (runLength > 0) {
+                i += runLength;
+            } else {
+                tickerColumns.get(i).updateRenderNode();
+                i++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Draws a run of settled columns as strictly left-to-right text, which only shapes the
+     * characters of the run together and never reorders them.
+     */
+    @TargetApi(Build.VERSION_CODES.M)
+    private static void drawTextRun(Canvas canvas, char[] runChars, int index, int count,
+            float x, Paint textPaint) {
+        canvas.drawTextRun(runChars, index, count, index, count, x, 0f, false, textPaint);
+    }
+
+    /**
+     * Finds the runs of at least two consecutive settled columns. Such a run can only be drawn as
+     * one piece of text if the text paint places each character right where its column is, which
+     * isn't the case if the font kerns any of the characters, so the width of each run as a
+     * whole is checked against the widths of its columns. Runs are also limited to left-to-right
+     * Latin characters and digits (see {@link #canBeInRun}), which are drawn the same way
+     * whether or not they are shaped together.
+     */
+    private void computeSettledRuns(Paint textPaint) {
+        final int size = tickerColumns.size();
+        if (runLengths.length < size) {
+            final int capacity = Math.max(size, runLengths.length * 2);
+            runChars = new char[capacity];
+            runLengths = new int[capacity];
+            runWidths = new float[capacity];
+        }
+
+        // Glyph strips exist to avoid drawing text, so settled columns are drawn from them too
+        final boolean coalesceRuns = coalesceSettledRuns && !metrics.getGlyphStripRendering();
+        final TickerColumnStore store = columnStore;
+        int runStart = 0;
+        float runWidth = 0f;
+        for (int i = 0; i <= size; i++) {
+            if (coalesceRuns && i < size && store.settled[i]
+                    && canBeInRun(store.targetChars[i])) {
+                runChars[i] = store.targetChars[i];
+                runWidth += store.currentWidths[i];
+                continue;
+            }
+
+            // The run ended before this column
+            final int runLength = i - runStart;
+            if (runLength > 1 && Math.abs(textPaint.measureText(runChars, runStart, runLength)
+                    - runWidth) <= MAX_RUN_WIDTH_ERROR) {
+                runLengths[runStart] = runLength;
+                runWidths[runStart] = runWidth;
+            } else {
+                for (int j = runStart; j < i; j++) {
+                    runLengths[j] = 0;
+                }
+            }
+            if (i < size) {
+                runLengths[i] = 0;
+            }
+            runStart = i + 1;
+            runWidth = 0f;
+        }
+        runsDirty = false;
+    }
+
+    /**
+     * @return whether {@param c} is a left-to-right Latin letter or a digit. Other characters
+     *         might be reordered, or form ligatures and contextual forms with their neighbours
+     *         that would change as soon as one of the neighbouring columns animates.
+     */
+    // VisibleForTesting
+    static boolean canBeInRun(char c) {
+        if (c > MAX_RUN_CHAR) {
+            return false;
+        }
+        final byte directionality = Character.getDirectionality(c);
+        return directionality == Character.DIRECTIONALITY_LEFT_TO_RIGHT
+                || directionality == Character.DIRECTIONALITY_EUROPEAN_NUMBER;
+    }
+
+    /**
+     * Applies the column actions from {@link LevenshteinUtils} to the columns as they are computed,
+     * building up the new list of columns in {@link #nextColumns} and their state in
+     * {@link #nextColumnStore} in a single pass.
+     */
+    private final class ColumnActionApplier implements LevenshteinUtils.ColumnActionSink {
+        private char[] text;
+        private int columnIndex;
+        private int textIndex;
+
+        void reset(char[] text) {
+            this.text = text;
+            this.columnIndex = 0;
+            this.textIndex = 0;
+        }
+
+        @Override
+        public void onColumnAction(int action) {
+            final int slot = nextColumns.size();
+            final TickerColumn column;
+            switch (action) {
+                case LevenshteinUtils.ACTION_INSERT:
+                    column = obtainColumn(nextColumnStore, slot);
+                    column.setTargetChar(text[textIndex]);
+                    textIndex++;
+                    break;
+                case LevenshteinUtils.ACTION_SAME:
+                    column = tickerColumns.get(columnIndex);
+                    column.moveTo(nextColumnStore, slot);
+                    column.setTargetChar(text[textIndex]);
+                    columnIndex++;
+                    textIndex++;
+                    break;
+                case LevenshteinUtils.ACTION_DELETE:
+                    column = tickerColumns.get(columnIndex);
+                    column.moveTo(nextColumnStore, slot);
+                    column.setTargetChar(TickerUtils.EMPTY_CHAR);
+                    columnIndex++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown action: " + action);
+            }
+            nextColumns.add(column);
         }
     }
 }
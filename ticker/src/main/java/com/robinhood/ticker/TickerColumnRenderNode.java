@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+/**
+ * Holds every row of a column's character list recorded into a {@link RenderNode}, stacked so
+ * that the character at index i sits i rows above the baseline. Animating the column then only
+ * moves the node instead of drawing the visible rows again, and the rows are only recorded again
+ * when the character list or the text paint changes.
+ *
+ * <p>This class must only be loaded on API 29+.
+ */
+@TargetApi(Build.VERSION_CODES.Q)
+class TickerColumnRenderNode {
+    private final RenderNode renderNode = new RenderNode("TickerColumn");
+
+    // What the node was last recorded with.
+    private char[] recordedCharacters;
+    private TickerGlyphStrip recordedGlyphStrip;
+    private float recordedCharHeight;
+    private int recordedPaintGeneration;
+    private boolean hasRecording;
+
+    /**
+     * Draws the node with the character at {@param index} of {@param characters} at
+     * {@param verticalOffset} from the baseline and {@param x} from the left, recording the
+     * rows first if anything they depend on changed since the last draw.
+     *
+     * @param glyphStrip the strip to record the rows from, or null to record them as text.
+     * @param paintGeneration changes whenever the text paint changes in a way that affects how
+     *                        the characters are drawn.
+     */
+    void draw(Canvas canvas, Paint textPaint, TickerDrawMetrics metrics, char[] characters,
+            TickerGlyphStrip glyphStrip, float charHeight, int paintGeneration, int index, float x,
+            float verticalOffset) {
+        if (!hasRecording || characters != recordedCharacters || glyphStrip != recordedGlyphStrip
+                || charHeight != recordedCharHeight
+                || paintGeneration != recordedPaintGeneration) {
+            record(textPaint, metrics, characters, glyphStrip, charHeight);
+            recordedCharacters = characters;
+            recordedGlyphStrip = glyphStrip;
+            recordedCharHeight = charHeight;
+            recordedPaintGeneration = paintGeneration;
+            hasRecording = true;
+        }
+
+        renderNode.setTranslationX(x);
+        setVerticalPosition(charHeight, index, verticalOffset);
+        canvas.drawRenderNode(renderNode);
+    }
+
+    /**
+     * Moves the node that was last drawn by {@link #draw} so that the character at
+     * {@param index} is at {@param verticalOffset} from the baseline, without drawing it again.
+     * The display list that the node was drawn into picks this up the next time it is rendered.
+     */
+    void setVerticalPosition(float charHeight, int index, float verticalOffset) {
+        renderNode.setTranslationY(verticalOffset + index * charHeight);
+    }
+
+    private void record(Paint textPaint, TickerDrawMetrics metrics, char[] characters,
+            TickerGlyphStrip glyphStrip, float charHeight) {
+        float width = 0f;
+        for (int i = 0; i < characters.length; i++) {
+            width = Math.max(width, metrics.getCharWidth(characters[i]));
+        }
+
+        // The node spans from the top of the last row down to the bottom of the first row. The
+        // baseline of the first row is at 0 in the parent, so the rows are recorded relative to
+        // the top of the node. Glyphs may draw outside of their row and advance though (italic
+        // overhangs, descenders, shadows), so the node doesn't clip its contents to these bounds
+        // and only the clip of the view applies, like it does for the other ways of drawing.
+        final int numRows = characters.length;
+        final int top = (int) Math.floor(-numRows * charHeight);
+        final int bottom = (int) Math.ceil(charHeight);
+        renderNode.setPosition(0, top, (int) Math.ceil(width), bottom);
+        renderNode.setClipToBounds(false);
+
+        final RecordingCanvas canvas = renderNode.beginRecording();
+        try {
+            for (int i = 0; i < numRows; i++) {
+                if (characters[i] == TickerUtils.EMPTY_CHAR) {
+                    continue;
+                }
+                final float baseline = -i * charHeight - top;
+                if (glyphStrip != null) {
+                    glyphStrip.draw(canvas, i, 0f, baseline, textPaint);
+                } else {
+                    canvas.drawText(characters, i, 1, 0f, baseline, textPaint);
+                }
+            }
+        } finally {
+            renderNode.endRecording();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+/**
+ * Holds the animation state of a row of {@link TickerColumn}s in parallel primitive arrays, one
+ * slot per column. Each column only keeps the character list it animates through and the index
+ * of its slot, so advancing the animation of every column is a single loop over these arrays
+ * that doesn't touch the column objects at all, see {@link #setAnimationProgress}.
+ *
+ * <p>{@link TickerColumnManager} keeps its columns in slots 0 to n - 1 in display order, and
+ * moves them to new slots whenever the text changes. A column that is used on its own gets a
+ * store with a single slot.
+ *
+ * <p>This class is not thread-safe and should only be accessed from the main thread.
+ */
+class TickerColumnStore {
+    char[] currentChars;
+    char[] targetChars;
+
+    // The path of the current transition through the column's character list, see
+    // TickerColumn#setTargetChar.
+    int[] startIndices;
+    int[] endIndices;
+    int[] numPathRows;
+    int[] numHeadRows;
+    int[] directionAdjustments;
+
+    // The state of the current frame, see TickerColumn#setAnimationProgress. The char height is
+    // the same for every column.
+    int[] bottomRows;
+    int[] bottomCharIndices;
+    float[] bottomDeltas;
+    boolean[] settled;
+    float charHeight;
+
+    // The vertical offsets that carry over when a transition interrupts another one.
+    float[] currentBottomDeltas;
+    float[] previousBottomDeltas;
+
+    float[] sourceWidths;
+    float[] currentWidths;
+    float[] targetWidths;
+    float[] minimumRequiredWidths;
+
+    TickerColumnStore(int capacity) {
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        currentChars = new char[capacity];
+        targetChars = new char[capacity];
+        startIndices = new int[capacity];
+        endIndices = new int[capacity];
+        numPathRows = new int[capacity];
+        numHeadRows = new int[capacity];
+        directionAdjustments = new int[capacity];
+        bottomRows = new int[capacity];
+        bottomCharIndices = new int[capacity];
+        bottomDeltas = new float[capacity];
+        settled = new boolean[capacity];
+        currentBottomDeltas = new float[capacity];
+        previousBottomDeltas = new float[capacity];
+        sourceWidths = new float[capacity];
+        currentWidths = new float[capacity];
+        targetWidths = new float[capacity];
+        minimumRequiredWidths = new float[capacity];
+    }
+
+    int getCapacity() {
+        return currentChars.length;
+    }
+
+    /**
+     * Makes room for at least {@param capacity} slots. The contents of the store are discarded
+     * if it has to grow, so this must only be called while none of the slots are in use.
+     */
+    void ensureCapacity(int capacity) {
+        if (getCapacity() < capacity) {
+            allocate(Math.max(capacity, getCapacity() * 2));
+        }
+    }
+
+    /**
+     * Puts {@param slot} back into the state of a column that was just constructed.
+     */
+    void clear(int slot) {
+        currentChars[slot] = targetChars[slot] = TickerUtils.EMPTY_CHAR;
+        startIndices[slot] = endIndices[slot] = 0;
+        numPathRows[slot] = numHeadRows[slot] = 0;
+        directionAdjustments[slot] = 0;
+        bottomRows[slot] = bottomCharIndices[slot] = 0;
+        bottomDeltas[slot] = 0f;
+        settled[slot] = false;
+        currentBottomDeltas[slot] = previousBottomDeltas[slot] = 0f;
+        sourceWidths[slot] = currentWidths[slot] = targetWidths[slot] = 0f;
+        minimumRequiredWidths[slot] = 0f;
+    }
+
+    /**
+     * Copies the state in {@param fromSlot} of {@param from} to {@param toSlot} of this store.
+     */
+    void copy(TickerColumnStore from, int fromSlot, int toSlot) {
+        if (from == this && fromSlot == toSlot) {
+            return;
+        }
+        currentChars[toSlot] = from.currentChars[fromSlot];
+        targetChars[toSlot] = from.targetChars[fromSlot];
+        startIndices[toSlot] = from.startIndices[fromSlot];
+        endIndices[toSlot] = from.endIndices[fromSlot];
+        numPathRows[toSlot] = from.numPathRows[fromSlot];
+        numHeadRows[toSlot] = from.numHeadRows[fromSlot];
+        directionAdjustments[toSlot] = from.directionAdjustments[fromSlot];
+        bottomRows[toSlot] = from.bottomRows[fromSlot];
+        bottomCharIndices[toSlot] = from.bottomCharIndices[fromSlot];
+        bottomDeltas[toSlot] = from.bottomDeltas[fromSlot];
+        settled[toSlot] = from.settled[fromSlot];
+        currentBottomDeltas[toSlot] = from.currentBottomDeltas[fromSlot];
+        previousBottomDeltas[toSlot] = from.previousBottomDeltas[fromSlot];
+        sourceWidths[toSlot] = from.sourceWidths[fromSlot];
+        currentWidths[toSlot] = from.currentWidths[fromSlot];
+        targetWidths[toSlot] = from.targetWidths[fromSlot];
+        minimumRequiredWidths[toSlot] = from.minimumRequiredWidths[fromSlot];
+        if (from != this) {
+            charHeight = from.charHeight;
+        }
+    }
+
+    /**
+     * Computes the frame at {@param animationProgress} for the columns in slots {@param start}
+     * (inclusive) to {@param end} (exclusive).
+     *
+     * @return whether any of the columns became settled or stopped being settled, see
+     *         {@link TickerColumn#isSettled()}.
+     */
+    boolean setAnimationProgress(int start, int end, float animationProgress, float charHeight) {
+        this.charHeight = charHeight;
+        // The same for every column
+        final boolean finished = animationProgress == 1f;
+        final float remainingProgress = 1f - animationProgress;
+
+        boolean settledChanged = false;
+        for (int i = start; i < end; i++) {
+            if (finished) {
+                // Animation finished (or never started), set to stable state.
+                currentChars[i] = targetChars[i];
+                currentBottomDeltas[i] = 0f;
+                previousBottomDeltas[i] = 0f;
+            }
+
+            // First let's find the total height of this column between the start and end
+            // chars. The current base is then the part of the total height that we have
+            // progressed to from the animation. For example, there might be 5 characters, each
+            // character is 2px tall, so the totalHeight is 10. If we are at 50% progress, then
+            // our baseline in this column is at 5 out of 10 (which is the 3rd character with a
+            // -50% offset to the baseline).
+            final float totalHeight = charHeight * numPathRows[i];
+            final float currentBase = animationProgress * totalHeight;
+
+            // Given the current base, we now can find which character should drawn on the
+            // bottom. Note that this position is a float. For example, if the
+            // bottomCharPosition is 4.5, it means that the bottom character is the 4th
+            // character, and it has a -50% offset relative to the baseline. By subtracting away
+            // the integer part, we have the percentage representation of the bottom char's
+            // offset.
+            final float bottomCharPosition = currentBase / charHeight;
+            final float bottomCharOffsetPercentage =
+                    bottomCharPosition - (int) bottomCharPosition;
+
+            // We might have interrupted a previous animation if previousBottomDelta is not 0f.
+            // If that's the case, we need to take this delta into account so that the previous
+            // character offset won't be wiped away when we start a new animation. We multiply
+            // by the inverse percentage so that the offset contribution from the delta
+            // progresses along with the rest of the animation (from full delta to 0).
+            final float additionalDelta = previousBottomDeltas[i] * remainingProgress;
+
+            // Now, using the bottom char's offset percentage and the delta we have from the
+            // previous animation, we can now compute what's the actual offset of the bottom
+            // character in the column relative to the baseline.
+            final float bottomDelta = bottomCharOffsetPercentage * charHeight
+                    * directionAdjustments[i] + additionalDelta;
+            final int bottomRow = (int) bottomCharPosition;
+            final int bottomCharIndex = getCharacterIndexForRow(i, bottomRow);
+            bottomDeltas[i] = bottomDelta;
+            bottomRows[i] = bottomRow;
+            bottomCharIndices[i] = bottomCharIndex;
+
+            final float targetWidth = targetWidths[i];
+            final float currentWidth =
+                    sourceWidths[i] + (targetWidth - sourceWidths[i]) * animationProgress;
+            currentWidths[i] = currentWidth;
+
+            final boolean isSettled = bottomDelta == 0f && bottomCharIndex == endIndices[i]
+                    && currentWidth == targetWidth;
+            if (isSettled != settled[i]) {
+                settled[i] = isSettled;
+                settledChanged = true;
+            }
+            if (isSettled) {
+                // Save the drawing state that TickerColumn#draw would have, as settled columns
+                // may not be drawn
+                currentChars[i] = targetChars[i];
+                currentBottomDeltas[i] = 0f;
+            }
+        }
+        return settledChanged;
+    }
+
+    /**
+     * Maps a row along the (possibly compressed) animation path of the column in {@param slot}
+     * to its index in the column's character list. Rows outside of the path extend past the
+     * corresponding end of the path.
+     */
+    int getCharacterIndexForRow(int slot, int row) {
+        if (row <= numHeadRows[slot]) {
+            return startIndices[slot] + row * directionAdjustments[slot];
+        } else {
+            return endIndices[slot] - (numPathRows[slot] - row) * directionAdjustments[slot];
+        }
+    }
+}
@@ -18,9 +18,6 @@ package com.robinhood.ticker;
 
 import android.graphics.Paint;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * This wrapper class represents some core drawing metrics that {@link TickerView} and
  * {@link TickerColumnManager} require to calculate the positions and offsets for rendering
@@ -30,48 +27,47 @@ import java.util.Map;
  */
 class TickerDrawMetrics {
     private final Paint textPaint;
+    private final TickerGlyphMetricsCache glyphMetricsCache;
+    private final TickerGlyphStripCache glyphStripCache;
 
     // These are attributes on the text paint used for measuring and drawing the text on the
-    // canvas. These attributes are reset whenever anything on the text paint changes.
-    private final Map<Character, Float> charWidths = new HashMap<>(256);
-    private float charHeight, charBaseline;
+    // canvas. The snapshot is swapped out whenever anything on the text paint changes.
+    private TickerGlyphMetrics glyphMetrics;
 
     private TickerView.ScrollingDirection preferredScrollingDirection = TickerView.ScrollingDirection.ANY;
+    private int maxRowsPerTransition;
+    private boolean glyphStripRendering;
 
     TickerDrawMetrics(Paint textPaint) {
+        this(textPaint, TickerGlyphMetricsCache.getShared());
+    }
+
+    TickerDrawMetrics(Paint textPaint, TickerGlyphMetricsCache glyphMetricsCache) {
+        this(textPaint, glyphMetricsCache, TickerGlyphStripCache.getShared());
+    }
+
+    TickerDrawMetrics(Paint textPaint, TickerGlyphMetricsCache glyphMetricsCache,
+            TickerGlyphStripCache glyphStripCache) {
         this.textPaint = textPaint;
+        this.glyphMetricsCache = glyphMetricsCache;
+        this.glyphStripCache = glyphStripCache;
         invalidate();
     }
 
     void invalidate() {
-        charWidths.clear();
-        final Paint.FontMetrics fm = textPaint.getFontMetrics();
-        charHeight = fm.bottom - fm.top;
-        charBaseline = -fm.top;
+        glyphMetrics = glyphMetricsCache.get(textPaint);
     }
 
     float getCharWidth(char character) {
-        if (character == TickerUtils.EMPTY_CHAR) {
-            return 0;
-        }
-
-        // This method will lazily initialize the char width map.
-        final Float value = charWidths.get(character);
-        if (value != null) {
-            return value;
-        } else {
-            final float width = textPaint.measureText(Character.toString(character));
-            charWidths.put(character, width);
-            return width;
-        }
+        return glyphMetrics.getCharWidth(character, textPaint);
     }
 
     float getCharHeight() {
-        return charHeight;
+        return glyphMetrics.getCharHeight();
     }
 
     float getCharBaseline() {
-        return charBaseline;
+        return glyphMetrics.getCharBaseline();
     }
 
     TickerView.ScrollingDirection getPreferredScrollingDirection() {
@@ -81,4 +77,40 @@ class TickerDrawMetrics {
     void setPreferredScrollingDirection(TickerView.ScrollingDirection preferredScrollingDirection) {
         this.preferredScrollingDirection = preferredScrollingDirection;
     }
+
+    int getMaxRowsPerTransition() {
+        return maxRowsPerTransition;
+    }
+
+    void setMaxRowsPerTransition(int maxRowsPerTransition) {
+        this.maxRowsPerTransition = maxRowsPerTransition;
+    }
+
+    boolean getGlyphStripRendering() {
+        return glyphStripRendering;
+    }
+
+    void setGlyphStripRendering(boolean glyphStripRendering) {
+        this.glyphStripRendering = glyphStripRendering;
+    }
+
+    /**
+     * Measures every character of {@param characterList} and rasterizes its glyph strip if
+     * glyph strip rendering is enabled, so that neither has to happen while drawing.
+     */
+    void prewarm(TickerCharacterList characterList) {
+        for (int i = 1, size = TickerGlyphStrip.getNumCharacters(characterList); i <= size; i++) {
+            glyphMetrics.getCharWidth(characterList.getCharacter(i), textPaint);
+        }
+        getGlyphStrip(characterList);
+    }
+
+    /**
+     * @return the glyph strip to draw the characters of {@param characterList} with, or null if
+     *         glyph strip rendering is disabled or the strip would be too large.
+     */
+    TickerGlyphStrip getGlyphStrip(TickerCharacterList characterList) {
+        return glyphStripRendering
+                ? glyphStripCache.get(characterList, glyphMetrics, textPaint) : null;
+    }
 }
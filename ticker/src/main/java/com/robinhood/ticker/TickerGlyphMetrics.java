@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+import android.graphics.Paint;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of the glyph measurements for one particular text paint configuration (see
+ * {@link TickerGlyphMetricsCache.Key}). Snapshots are shared between every {@link TickerView}
+ * whose paint is configured the same way, so they never change once created: the height and
+ * baseline are computed up front and each character width is measured at most once.
+ *
+ * <p>This class is not thread-safe and should only be accessed from the main thread.
+ */
+class TickerGlyphMetrics {
+    /**
+     * Notified whenever a character is measured for the first time, i.e. when the snapshot
+     * gained information that isn't persisted yet.
+     */
+    interface OnCharMeasuredListener {
+        void onCharMeasured(TickerGlyphMetrics glyphMetrics);
+    }
+
+    // Characters below this value get a slot in the dense width table, everything else goes
+    // into the open-addressed overflow table.
+    private static final int DENSE_TABLE_SIZE = 256;
+    private static final int INITIAL_OVERFLOW_CAPACITY = 16;
+    private static final float UNMEASURED = -1f;
+
+    private final float charHeight, charBaseline;
+
+    private final float[] denseCharWidths = new float[DENSE_TABLE_SIZE];
+    // Linear-probing table for characters outside of the dense range. EMPTY_CHAR marks a free
+    // slot, which is safe because EMPTY_CHAR always falls into the dense range.
+    private char[] overflowChars = new char[INITIAL_OVERFLOW_CAPACITY];
+    private float[] overflowCharWidths = new float[INITIAL_OVERFLOW_CAPACITY];
+    private int overflowSize;
+    private int measuredCharCount;
+
+    private OnCharMeasuredListener onCharMeasuredListener;
+
+    // Scratch buffers so that measuring a character does not allocate.
+    private final char[] measureBuffer = new char[1];
+    private final float[] measureResult = new float[1];
+
+    TickerGlyphMetrics(Paint textPaint) {
+        final Paint.FontMetrics fm = textPaint.getFontMetrics();
+        charHeight = fm.bottom - fm.top;
+        charBaseline = -fm.top;
+        Arrays.fill(denseCharWidths, UNMEASURED);
+    }
+
+    /**
+     * Restores a snapshot from previously computed font metrics, see
+     * {@link TickerGlyphMetricsStore}.
+     */
+    TickerGlyphMetrics(float charHeight, float charBaseline) {
+        this.charHeight = charHeight;
+        this.charBaseline = charBaseline;
+        Arrays.fill(denseCharWidths, UNMEASURED);
+    }
+
+    void setOnCharMeasuredListener(OnCharMeasuredListener onCharMeasuredListener) {
+        this.onCharMeasuredListener = onCharMeasuredListener;
+    }
+
+    float getCharHeight() {
+        return charHeight;
+    }
+
+    float getCharBaseline() {
+        return charBaseline;
+    }
+
+    /**
+     * @param character the character to look up.
+     * @param textPaint a paint matching the configuration of this snapshot, used to measure
+     *                  the character if we haven't seen it before.
+     * @return the width of the character.
+     */
+    float getCharWidth(char character, Paint textPaint) {
+        if (character == TickerUtils.EMPTY_CHAR) {
+            return 0;
+        }
+
+        // This method will lazily initialize the char width tables.
+        float width;
+        if (character < DENSE_TABLE_SIZE) {
+            width = denseCharWidths[character];
+        } else {
+            final int slot = TickerCharTable.findSlot(overflowChars, character);
+            width = overflowChars[slot] == character ? overflowCharWidths[slot] : UNMEASURED;
+        }
+
+        if (width == UNMEASURED) {
+            width = measureChar(character, textPaint);
+            putCharWidth(character, width);
+            if (onCharMeasuredListener != null) {
+                onCharMeasuredListener.onCharMeasured(this);
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Records the width of a character that was measured elsewhere, e.g. restored from disk.
+     */
+    void putCharWidth(char character, float width) {
+        if (character == TickerUtils.EMPTY_CHAR) {
+            return;
+        }
+
+        if (character < DENSE_TABLE_SIZE) {
+            if (denseCharWidths[character] == UNMEASURED) {
+                measuredCharCount++;
+            }
+            denseCharWidths[character] = width;
+            return;
+        }
+
+        final int slot = TickerCharTable.findSlot(overflowChars, character);
+        overflowCharWidths[slot] = width;
+        if (overflowChars[slot] != character) {
+            overflowChars[slot] = character;
+            measuredCharCount++;
+            if (TickerCharTable.needsToGrow(++overflowSize, overflowChars.length)) {
+                growOverflowTable();
+            }
+        }
+    }
+
+    /**
+     * @return the number of characters whose width is known.
+     */
+    int getMeasuredCharCount() {
+        return measuredCharCount;
+    }
+
+    /**
+     * Copies every known character width into the provided arrays, which must have room for
+     * at least {@link #getMeasuredCharCount()} entries.
+     */
+    void copyMeasuredCharWidths(char[] outChars, float[] outWidths) {
+        int count = 0;
+        for (char character = 0; character < DENSE_TABLE_SIZE; character++) {
+            if (denseCharWidths[character] != UNMEASURED) {
+                outChars[count] = character;
+                outWidths[count++] = denseCharWidths[character];
+            }
+        }
+        for (int i = 0; i < overflowChars.length; i++) {
+            if (overflowChars[i] != TickerUtils.EMPTY_CHAR) {
+                outChars[count] = overflowChars[i];
+                outWidths[count++] = overflowCharWidths[i];
+            }
+        }
+    }
+
+    /**
+     * Measures a single character in isolation. Each column draws exactly one character, so we
+     * deliberately don't measure runs of characters in one go: {@link Paint#getTextWidths}
+     * reports advances in the context of the neighboring characters (e.g. kerning), which
+     * won't match what the column actually draws.
+     */
+    private float measureChar(char character, Paint textPaint) {
+        measureBuffer[0] = character;
+        textPaint.getTextWidths(measureBuffer, 0, 1, measureResult);
+        return measureResult[0];
+    }
+
+    private void growOverflowTable() {
+        final char[] oldChars = overflowChars;
+        final float[] oldWidths = overflowCharWidths;
+        final int capacity = TickerCharTable.getCapacity(overflowSize);
+        overflowChars = new char[capacity];
+        overflowCharWidths = new float[capacity];
+
+        for (int i = 0; i < oldChars.length; i++) {
+            final char character = oldChars[i];
+            if (character != TickerUtils.EMPTY_CHAR) {
+                final int slot = TickerCharTable.findSlot(overflowChars, character);
+                overflowChars[slot] = character;
+                overflowCharWidths[slot] = oldWidths[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+import android.annotation.TargetApi;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+
+/**
+ * A bounded LRU cache of {@link TickerGlyphMetrics} keyed by the text paint attributes that
+ * affect measurement. Screens typically show many tickers with the exact same text style, so
+ * this lets all of them share a single set of measurements instead of each view re-measuring
+ * the same glyphs.
+ *
+ * <p>This class is not thread-safe and should only be accessed from the main thread.
+ */
+class TickerGlyphMetricsCache {
+    static final int DEFAULT_MAX_SIZE = 16;
+    private static final TickerGlyphMetricsCache SHARED = new TickerGlyphMetricsCache(DEFAULT_MAX_SIZE);
+
+    private final TickerLruCache<Key, TickerGlyphMetrics> entries;
+    private final Key lookupKey = new Key();
+
+    private TickerGlyphMetricsStore store;
+
+    static TickerGlyphMetricsCache getShared() {
+        return SHARED;
+    }
+
+    TickerGlyphMetricsCache(int maxSize) {
+        this.entries = new TickerLruCache<>(maxSize);
+    }
+
+    /**
+     * Sets the store used to restore and persist glyph metrics across launches, see
+     * {@link TickerView#enablePersistentMetricsCache}.
+     */
+    void setStore(TickerGlyphMetricsStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @return the shared glyph metrics for the current configuration of {@param textPaint},
+     *         measuring the font metrics if this configuration hasn't been seen before.
+     */
+    TickerGlyphMetrics get(Paint textPaint) {
+        lookupKey.set(textPaint);
+        TickerGlyphMetrics glyphMetrics = entries.get(lookupKey);
+        if (glyphMetrics == null) {
+            final Key key = new Key();
+            key.set(textPaint);
+            if (store != null) {
+                glyphMetrics = store.get(key);
+            }
+            if (glyphMetrics == null) {
+                glyphMetrics = new TickerGlyphMetrics(textPaint);
+            }
+            if (store != null) {
+                store.track(key, glyphMetrics);
+            }
+            entries.put(key, glyphMetrics);
+        }
+        return glyphMetrics;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * The subset of {@link Paint} attributes that affect which glyphs are drawn and how they are
+     * measured. Attributes that the running API level doesn't have keep their default values.
+     */
+    static final class Key {
+        Typeface typeface;
+        float textSize;
+        float textScaleX;
+        float textSkewX;
+        int flags;
+        float letterSpacing;
+        boolean elegantTextHeight;
+        // e.g. "tnum" switches to tabular digits, which changes the digit widths.
+        String fontFeatureSettings;
+        String fontVariationSettings;
+        // A Locale before API 24 and a LocaleList since, which pick between the regional
+        // variants of some glyphs (e.g. CJK).
+        Object textLocales;
+
+        @TargetApi(Build.VERSION_CODES.O)
+        void set(Paint textPaint) {
+            typeface = textPaint.getTypeface();
+            textSize = textPaint.getTextSize();
+            textScaleX = textPaint.getTextScaleX();
+            textSkewX = textPaint.getTextSkewX();
+            flags = textPaint.getFlags();
+            letterSpacing = 0f;
+            elegantTextHeight = false;
+            fontFeatureSettings = fontVariationSettings = null;
+            textLocales = null;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                letterSpacing = textPaint.getLetterSpacing();
+                elegantTextHeight = textPaint.isElegantTextHeight();
+                fontFeatureSettings = textPaint.getFontFeatureSettings();
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                fontVariationSettings = textPaint.getFontVariationSettings();
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                textLocales = textPaint.getTextLocales();
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                textLocales = textPaint.getTextLocale();
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key other = (Key) o;
+            return textSize == other.textSize
+                    && textScaleX == other.textScaleX
+                    && textSkewX == other.textSkewX
+                    && flags == other.flags
+                    && letterSpacing == other.letterSpacing
+                    && elegantTextHeight == other.elegantTextHeight
+                    && equal(typeface, other.typeface)
+                    && equal(fontFeatureSettings, other.fontFeatureSettings)
+                    && equal(fontVariationSettings, other.fontVariationSettings)
+                    && equal(textLocales, other.textLocales);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = typeface != null ? typeface.hashCode() : 0;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + Float.floatToIntBits(textScaleX);
+            result = 31 * result + Float.floatToIntBits(textSkewX);
+            result = 31 * result + flags;
+            result = 31 * result + Float.floatToIntBits(letterSpacing);
+            result = 31 * result + (elegantTextHeight ? 1 : 0);
+            result = 31 * result + (fontFeatureSettings != null ? fontFeatureSettings.hashCode() : 0);
+            result = 31 * result
+                    + (fontVariationSettings != null ? fontVariationSettings.hashCode() : 0);
+            result = 31 * result + (textLocales != null ? textLocales.hashCode() : 0);
+            return result;
+        }
+
+        private static boolean equal(Object first, Object second) {
+            return first == null ? second == null : first.equals(second);
+        }
+    }
+}
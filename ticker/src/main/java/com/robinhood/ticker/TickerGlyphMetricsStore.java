@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Persists {@link TickerGlyphMetrics} across process launches so that the first screen of
+ * tickers doesn't need to measure the font before it can draw. The measurements are kept in a
+ * compact binary file that is read with a single memory-mapped read when the store is created,
+ * and re-written in the background shortly after new glyphs are measured.
+ *
+ * <p>The whole file is discarded if it was written with a different fingerprint (e.g. after
+ * an OS update, which can change the system fonts, or a display density change). Only the
+ * system typefaces can be identified across launches, so metrics for custom typefaces are
+ * only cached in memory. Note that since API 31 the system fonts can also be updated without
+ * an OS update, which the fingerprint doesn't catch: apps can't identify the font files behind
+ * a system typeface, so measurements restored after such an update may be slightly off until
+ * the cache directory is cleared.
+ *
+ * <p>The file holds at most as many entries as the shared {@link TickerGlyphMetricsCache}. The
+ * snapshots used most recently in this session are kept first, and the room that is left goes
+ * to entries restored from disk that weren't used yet.
+ *
+ * <p>This class is not thread-safe and should only be accessed from the main thread.
+ */
+class TickerGlyphMetricsStore implements TickerGlyphMetrics.OnCharMeasuredListener {
+    private static final String TAG = "TickerGlyphMetrics";
+
+    private static final int MAGIC = 0x5449434b; // "TICK"
+    private static final int VERSION = 2;
+    private static final long SAVE_DELAY_MS = 2000;
+    // VisibleForTesting
+    static final int MAX_ENTRIES = TickerGlyphMetricsCache.DEFAULT_MAX_SIZE;
+
+    // A single thread so that two saves never write the temporary file at the same time.
+    private static final Executor SAVE_EXECUTOR =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private static final String[] SYSTEM_FAMILY_NAMES = {
+            "default", "default-bold", "sans-serif", "serif", "monospace"
+    };
+
+    private final File file;
+    private final String fingerprint;
+    private final Handler handler;
+
+    // Entries restored from disk that haven't been claimed by the in-memory cache yet.
+    private final Map<String, TickerGlyphMetrics> restored = new HashMap<>();
+    // The snapshots that we know how to persist, least recently used first.
+    private final TickerLruCache<String, TickerGlyphMetrics> tracked =
+            new TickerLruCache<>(MAX_ENTRIES);
+    private boolean saveScheduled;
+
+    private final Runnable saveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            saveScheduled = false;
+            final byte[] data = serialize();
+            SAVE_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(data);
+                }
+            });
+        }
+    };
+
+    /**
+     * @param file the file to read from and write to.
+     * @param fingerprint identifies the environment that the measurements are valid for.
+     * @param handler handler for the main thread used to schedule saves, or null if the
+     *                caller will call {@link #save()} itself.
+     */
+    TickerGlyphMetricsStore(File file, String fingerprint, Handler handler) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.handler = handler;
+        load();
+    }
+
+    /**
+     * @return the restored glyph metrics for the given key, or null if the key isn't
+     *         persistable or wasn't found on disk. Either way, the store will keep track of the
+     *         snapshot that ends up being used for this key via {@link #track}.
+     */
+    TickerGlyphMetrics get(TickerGlyphMetricsCache.Key key) {
+        final String persistentKey = getPersistentKey(key);
+        if (persistentKey == null) {
+            return null;
+        }
+
+        final TickerGlyphMetrics glyphMetrics = tracked.get(persistentKey);
+        return glyphMetrics != null ? glyphMetrics : restored.remove(persistentKey);
+    }
+
+    /**
+     * Starts persisting the given snapshot, including any characters it measures later on.
+     */
+    void track(TickerGlyphMetricsCache.Key key, TickerGlyphMetrics glyphMetrics) {
+        final String persistentKey = getPersistentKey(key);
+        if (persistentKey == null || tracked.get(persistentKey) == glyphMetrics) {
+            return;
+        }
+
+        TickerGlyphMetrics dropped = tracked.remove(persistentKey);
+        if (dropped == null) {
+            dropped = tracked.evictIfFull();
+        }
+        if (dropped != null) {
+            dropped.setOnCharMeasuredListener(null);
+        }
+        tracked.put(persistentKey, glyphMetrics);
+        glyphMetrics.setOnCharMeasuredListener(this);
+        scheduleSave();
+    }
+
+    @Override
+    public void onCharMeasured(TickerGlyphMetrics glyphMetrics) {
+        scheduleSave();
+    }
+
+    private void scheduleSave() {
+        if (handler != null && !saveScheduled) {
+            saveScheduled = true;
+            handler.postDelayed(saveRunnable, SAVE_DELAY_MS);
+        }
+    }
+
+    /**
+     * Synchronously writes every tracked snapshot to disk.
+     */
+    void save() {
+        write(serialize());
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                final FileChannel channel = raf.getChannel();
+                final MappedByteBuffer buffer =
+                        channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                        || !fingerprint.equals(readString(buffer))) {
+                    // Stale file, it'll be overwritten by the next save.
+                    return;
+                }
+
+                final int entryCount = buffer.getInt();
+                for (int i = 0; i < entryCount; i++) {
+                    final String persistentKey = readString(buffer);
+                    final TickerGlyphMetrics glyphMetrics =
+                            new TickerGlyphMetrics(buffer.getFloat(), buffer.getFloat());
+                    final int charCount = buffer.getInt();
+                    for (int j = 0; j < charCount; j++) {
+                        glyphMetrics.putCharWidth(buffer.getChar(), buffer.getFloat());
+                    }
+                    restored.put(persistentKey, glyphMetrics);
+                }
+            } finally {
+                raf.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Corrupted or truncated files are simply ignored.
+            Log.w(TAG, "Unable to read " + file, e);
+            restored.clear();
+        }
+    }
+
+    private byte[] serialize() {
+        // Entries restored from disk but not used in this session fill up the room that the
+        // tracked snapshots leave, and are the first to be dropped.
+        final Map<String, TickerGlyphMetrics> entries = new LinkedHashMap<>(tracked);
+        for (Map.Entry<String, TickerGlyphMetrics> entry : restored.entrySet()) {
+            if (entries.size() >= MAX_ENTRIES) {
+                break;
+            }
+            if (!entries.containsKey(entry.getKey())) {
+                entries.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        int size = 4 + 4 + stringSize(fingerprint) + 4;
+        for (Map.Entry<String, TickerGlyphMetrics> entry : entries.entrySet()) {
+            size += stringSize(entry.getKey()) + 4 + 4 + 4
+                    + entry.getValue().getMeasuredCharCount() * (2 + 4);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        writeString(buffer, fingerprint);
+        buffer.putInt(entries.size());
+        for (Map.Entry<String, TickerGlyphMetrics> entry : entries.entrySet()) {
+            final TickerGlyphMetrics glyphMetrics = entry.getValue();
+            final int charCount = glyphMetrics.getMeasuredCharCount();
+            final char[] chars = new char[charCount];
+            final float[] widths = new float[charCount];
+            glyphMetrics.copyMeasuredCharWidths(chars, widths);
+
+            writeString(buffer, entry.getKey());
+            buffer.putFloat(glyphMetrics.getCharHeight());
+            buffer.putFloat(glyphMetrics.getCharBaseline());
+            buffer.putInt(charCount);
+            for (int i = 0; i < charCount; i++) {
+                buffer.putChar(chars[i]);
+                buffer.putFloat(widths[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    private void write(byte[] data) {
+        // Write to a temporary file first so that a crash never leaves a partial file behind.
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            final FileOutputStream out = new FileOutputStream(tempFile);
+            try {
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Unable to rename " + tempFile);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write " + file, e);
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+    }
+
+    private static int stringSize(String value) {
+        return 4 + value.length() * 2;
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        buffer.putInt(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer.putChar(value.charAt(i));
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final char[] chars = new char[buffer.getInt()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = buffer.getChar();
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return a key that identifies the paint configuration across launches, or null if the
+     *         typeface can't be identified.
+     */
+    private static String getPersistentKey(TickerGlyphMetricsCache.Key key) {
+        final String fontIdentity = getFontIdentity(key.typeface);
+        if (fontIdentity == null) {
+            return null;
+        }
+        return fontIdentity + '|' + key.textSize + '|' + key.textScaleX + '|' + key.textSkewX
+                + '|' + key.flags + '|' + key.letterSpacing + '|' + key.elegantTextHeight
+                + '|' + key.fontFeatureSettings + '|' + key.fontVariationSettings
+                + '|' + key.textLocales;
+    }
+
+    // VisibleForTesting
+    static String getFontIdentity(Typeface typeface) {
+        if (typeface == null) {
+            return SYSTEM_FAMILY_NAMES[0] + '/' + Typeface.NORMAL;
+        }
+
+        // Typeface.create caches the styled typefaces, so this resolves to the same instances
+        // that TickerView#setTypeface ends up using.
+        final Typeface[] systemFamilies = {
+                Typeface.DEFAULT, Typeface.DEFAULT_BOLD, Typeface.SANS_SERIF,
+                Typeface.SERIF, Typeface.MONOSPACE
+        };
+        for (int i = 0; i < systemFamilies.length; i++) {
+            if (typeface.equals(systemFamilies[i])) {
+                return SYSTEM_FAMILY_NAMES[i] + '/' + typeface.getStyle();
+            }
+            for (int style = Typeface.BOLD; style <= Typeface.BOLD_ITALIC; style++) {
+                if (typeface.equals(Typeface.create(systemFamilies[i], style))) {
+                    return SYSTEM_FAMILY_NAMES[i] + '/' + style;
+                }
+            }
+        }
+        return null;
+    }
+}
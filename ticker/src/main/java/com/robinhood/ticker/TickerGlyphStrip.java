@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * The characters of a {@link TickerCharacterList} rasterized once into a vertical strip, one
+ * cell per character, so that a column can be drawn by copying cells out of the strip instead
+ * of drawing text every frame.
+ *
+ * <p>The strip only holds coverage (an {@link Bitmap.Config#ALPHA_8} bitmap). The color comes
+ * from the paint it is drawn with, so a strip can be shared by tickers with different text
+ * colors.
+ *
+ * <p>Cells are copied to whole pixels. Copying them to fractional positions would resample
+ * them differently from one frame to the next while the column scrolls, which makes the
+ * characters shimmer.
+ */
+class TickerGlyphStrip {
+    private final Bitmap bitmap;
+    private final int numCharacters;
+    // The bounds of a cell relative to the origin of the character it holds.
+    private final int cellLeft;
+    private final int cellTop;
+    private final int cellWidth;
+    private final int cellHeight;
+
+    // Re-used for every draw so that drawing doesn't allocate.
+    private final Rect srcRect = new Rect();
+    private final Rect dstRect = new Rect();
+
+    /**
+     * Computes the bounds of a cell that fits every character in {@param characterList},
+     * relative to the origin of the character. Besides the advance width and the line height,
+     * this covers the ink of glyphs that extend past them (e.g. in italic fonts) and the stroke,
+     * plus a pixel for anti-aliasing.
+     */
+    static void getCellBounds(TickerCharacterList characterList, TickerGlyphMetrics glyphMetrics,
+            Paint textPaint, Rect outBounds) {
+        float right = 0f;
+        int inkLeft = 0, inkTop = 0, inkRight = 0, inkBottom = 0;
+        final char[] character = new char[1];
+        for (int i = 0, size = getNumCharacters(characterList); i < size; i++) {
+            character[0] = characterList.getCharacter(i + 1);
+            right = Math.max(right, glyphMetrics.getCharWidth(character[0], textPaint));
+            textPaint.getTextBounds(character, 0, 1, outBounds);
+            inkLeft = Math.min(inkLeft, outBounds.left);
+            inkTop = Math.min(inkTop, outBounds.top);
+            inkRight = Math.max(inkRight, outBounds.right);
+            inkBottom = Math.max(inkBottom, outBounds.bottom);
+        }
+
+        final float baseline = glyphMetrics.getCharBaseline();
+        final int padding = 1 + (int) Math.ceil(textPaint.getStrokeWidth() / 2f);
+        outBounds.left = inkLeft - padding;
+        outBounds.top = Math.min(inkTop, (int) Math.floor(-baseline)) - padding;
+        outBounds.right = Math.max(inkRight, (int) Math.ceil(right)) + padding;
+        outBounds.bottom = Math.max(inkBottom,
+                (int) Math.ceil(glyphMetrics.getCharHeight() - baseline)) + padding;
+    }
+
+    /**
+     * @return the number of characters in {@param characterList} without the empty character
+     *         and the repetition that make up the doubled list.
+     */
+    static int getNumCharacters(TickerCharacterList characterList) {
+        return characterList.getSize() / 2;
+    }
+
+    /**
+     * @param cellBounds the bounds from {@link #getCellBounds}.
+     */
+    TickerGlyphStrip(TickerCharacterList characterList, Paint textPaint, Rect cellBounds) {
+        this.numCharacters = getNumCharacters(characterList);
+        this.cellLeft = cellBounds.left;
+        this.cellTop = cellBounds.top;
+        this.cellWidth = cellBounds.right - cellBounds.left;
+        this.cellHeight = cellBounds.bottom - cellBounds.top;
+        this.bitmap = Bitmap.createBitmap(cellWidth, cellHeight * numCharacters,
+                Bitmap.Config.ALPHA_8);
+
+        // Only the coverage ends up in the strip, so neither the color nor any effects that
+        // are applied when drawing the strip matter here.
+        final Paint stripPaint = new Paint(textPaint);
+        stripPaint.setColor(Color.BLACK);
+        stripPaint.clearShadowLayer();
+        stripPaint.setMaskFilter(null);
+
+        final Canvas canvas = new Canvas(bitmap);
+        final char[] character = new char[1];
+        for (int cell = 0; cell < numCharacters; cell++) {
+            character[0] = characterList.getCharacter(cell + 1);
+            canvas.drawText(character, 0, 1, -cellLeft, cell * cellHeight - cellTop, stripPaint);
+        }
+    }
+
+    /**
+     * @return the number of bytes taken up by the strip's bitmap.
+     */
+    int getByteCount() {
+        return cellWidth * cellHeight * numCharacters;
+    }
+
+    /**
+     * Draws the character at {@param index} in the doubled character list at {@param x} and
+     * {@param verticalOffset} from the baseline, the same place where
+     * {@link Canvas#drawText} would have drawn it up to rounding to whole pixels.
+     */
+    void draw(Canvas canvas, int index, float x, float verticalOffset, Paint textPaint) {
+        if (index == 0) {
+            // EMPTY_CHAR
+            return;
+        }
+
+        final int cell = (index - 1) % numCharacters;
+        srcRect.set(0, cell * cellHeight, cellWidth, (cell + 1) * cellHeight);
+        final int left = Math.round(x) + cellLeft;
+        final int top = Math.round(verticalOffset) + cellTop;
+        dstRect.set(left, top, left + cellWidth, top + cellHeight);
+        canvas.drawBitmap(bitmap, srcRect, dstRect, textPaint);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+
+import java.util.Iterator;
+
+/**
+ * A bounded LRU cache of {@link TickerGlyphStrip}s keyed by character list, glyph metrics and
+ * the stroke of the text paint. Glyph metrics are shared between all text paints that are
+ * configured the same way (see {@link TickerGlyphMetricsCache}), so this lets all tickers with
+ * the same character list and text style draw from a single strip. Besides the number of
+ * entries, the cache limits the total size of its strips, and the shared cache releases them
+ * when the app's memory runs low or its UI is hidden (see {@link #releaseOnTrimMemory}).
+ *
+ * <p>This class is not thread-safe and should only be accessed from the main thread.
+ */
+class TickerGlyphStripCache {
+    private static final int DEFAULT_MAX_SIZE = 8;
+    // Strips are ALPHA_8, so this is also the maximum number of bytes per strip.
+    static final int MAX_STRIP_PIXELS = 1024 * 1024;
+    private static final int DEFAULT_MAX_BYTES = 2 * MAX_STRIP_PIXELS;
+    // Bitmaps larger than this in either dimension can't be drawn with hardware acceleration on
+    // some devices.
+    static final int MAX_STRIP_DIMENSION = 4096;
+
+    private static final TickerGlyphStripCache SHARED =
+            new TickerGlyphStripCache(DEFAULT_MAX_SIZE);
+    private static ComponentCallbacks2 trimMemoryCallbacks;
+
+    // Character lists that are too large for a strip are kept with a null strip so that their
+    // size isn't computed again on every draw.
+    private final TickerLruCache<Key, TickerGlyphStrip> entries;
+    private final int maxBytes;
+    private final Key lookupKey = new Key();
+    // Only created once a strip is first needed.
+    private Rect cellBounds;
+
+    static TickerGlyphStripCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Registers a callback that releases the strips of the shared cache when the app's memory
+     * runs low or its UI is hidden. This only registers once per process, and does nothing
+     * below API 14.
+     *
+     * @param context any context, used to get the application context.
+     */
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    static void releaseOnTrimMemory(Context context) {
+        if (trimMemoryCallbacks != null
+                || Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            return;
+        }
+
+        trimMemoryCallbacks = new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                    SHARED.clear();
+                }
+            }
+
+            @Override
+            public void onLowMemory() {
+                SHARED.clear();
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+        };
+        context.getApplicationContext().registerComponentCallbacks(trimMemoryCallbacks);
+    }
+
+    TickerGlyphStripCache(int maxSize) {
+        this(maxSize, DEFAULT_MAX_BYTES, null);
+    }
+
+    /**
+     * @param maxBytes the maximum total size of the strips. The most recently used strip is
+     *                 kept even if it's larger.
+     * @param cellBounds the rect to measure cells with, or null to create one when it's first
+     *                   needed.
+     */
+    // VisibleForTesting
+    TickerGlyphStripCache(int maxSize, int maxBytes, Rect cellBounds) {
+        this.entries = new TickerLruCache<>(maxSize);
+        this.maxBytes = maxBytes;
+        this.cellBounds = cellBounds;
+    }
+
+    /**
+     * @return the shared glyph strip of {@param characterList} drawn with {@param textPaint},
+     *         whose measurements are {@param glyphMetrics}, rasterizing it if this combination
+     *         hasn't been seen recently. Null if the strip would be too large or can't show
+     *         the text paint's shadow layer, in which case the characters should be drawn as
+     *         text.
+     */
+    TickerGlyphStrip get(TickerCharacterList characterList, TickerGlyphMetrics glyphMetrics,
+            Paint textPaint) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && textPaint.getShadowLayerRadius() > 0f) {
+            // Strips only hold coverage, so the shadow would be lost.
+            return null;
+        }
+
+        lookupKey.set(characterList, glyphMetrics, textPaint);
+        TickerGlyphStrip glyphStrip = entries.get(lookupKey);
+        if (glyphStrip == null && !entries.containsKey(lookupKey)) {
+            if (cellBounds == null) {
+                cellBounds = new Rect();
+            }
+            TickerGlyphStrip.getCellBounds(characterList, glyphMetrics, textPaint, cellBounds);
+            if (isWithinSizeLimits(cellBounds.right - cellBounds.left,
+                    cellBounds.bottom - cellBounds.top,
+                    TickerGlyphStrip.getNumCharacters(characterList))) {
+                glyphStrip = createGlyphStrip(characterList, textPaint, cellBounds);
+            }
+
+            final Key key = new Key();
+            key.set(characterList, glyphMetrics, textPaint);
+            entries.put(key, glyphStrip);
+            if (glyphStrip != null) {
+                trimToMaxBytes();
+            }
+        }
+        lookupKey.set(null, null, null);
+        return glyphStrip;
+    }
+
+    // VisibleForTesting
+    TickerGlyphStrip createGlyphStrip(TickerCharacterList characterList, Paint textPaint,
+            Rect cellBounds) {
+        return new TickerGlyphStrip(characterList, textPaint, cellBounds);
+    }
+
+    /**
+     * Evicts the least recently used strips until the strips fit in {@link #maxBytes}, keeping
+     * at least the most recently used one.
+     */
+    private void trimToMaxBytes() {
+        int byteCount = 0;
+        for (TickerGlyphStrip glyphStrip : entries.values()) {
+            if (glyphStrip != null) {
+                byteCount += glyphStrip.getByteCount();
+            }
+        }
+
+        final Iterator<TickerGlyphStrip> iterator = entries.values().iterator();
+        while (byteCount > maxBytes && entries.size() > 1) {
+            final TickerGlyphStrip glyphStrip = iterator.next();
+            if (glyphStrip != null) {
+                byteCount -= glyphStrip.getByteCount();
+            }
+            iterator.remove();
+        }
+    }
+
+    static boolean isWithinSizeLimits(int cellWidth, int cellHeight, int numCharacters) {
+        final long height = (long) cellHeight * numCharacters;
+        return cellWidth > 0 && height > 0
+                && cellWidth <= MAX_STRIP_DIMENSION && height <= MAX_STRIP_DIMENSION
+                && cellWidth * height <= MAX_STRIP_PIXELS;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Character lists are interned by {@link TickerCharacterListRegistry} and glyph metrics by
+     * {@link TickerGlyphMetricsCache}, so both are compared by identity. Sharing glyph metrics
+     * already means sharing every attribute in {@link TickerGlyphMetricsCache.Key} (typeface,
+     * size, scale, skew, font features, locale...), so only the stroke is added on top. The
+     * color, shadow and mask filter aren't part of the strip, see {@link TickerGlyphStrip}.
+     */
+    static final class Key {
+        private TickerCharacterList characterList;
+        private TickerGlyphMetrics glyphMetrics;
+        private Paint.Style style;
+        private float strokeWidth;
+        private Paint.Join strokeJoin;
+        private float strokeMiter;
+
+        void set(TickerCharacterList characterList, TickerGlyphMetrics glyphMetrics,
+                Paint textPaint) {
+            this.characterList = characterList;
+            this.glyphMetrics = glyphMetrics;
+            if (textPaint != null) {
+                this.style = textPaint.getStyle();
+                this.strokeWidth = textPaint.getStrokeWidth();
+                this.strokeJoin = textPaint.getStrokeJoin();
+                this.strokeMiter = textPaint.getStrokeMiter();
+            } else {
+                this.style = null;
+                this.strokeJoin = null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key other = (Key) o;
+            return characterList == other.characterList && glyphMetrics == other.glyphMetrics
+                    && style == other.style && strokeWidth == other.strokeWidth
+                    && strokeJoin == other.strokeJoin && strokeMiter == other.strokeMiter;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(characterList);
+            result = 31 * result + System.identityHashCode(glyphMetrics);
+            result = 31 * result + (style != null ? style.hashCode() : 0);
+            result = 31 * result + Float.floatToIntBits(strokeWidth);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map that holds at most a fixed number of entries and evicts the least recently used one to
+ * make room for a new one. This backs the caches that share state between tickers. They look
+ * entries up with a key object that is reused for every lookup, so that hits don't allocate,
+ * and only create a new key when a miss gets inserted.
+ *
+ * <p>This class is not thread-safe and should only be accessed from the main thread.
+ */
+class TickerLruCache<K, V> extends LinkedHashMap<K, V> {
+    private static final long serialVersionUID = 1L;
+
+    private final int maxSize;
+
+    TickerLruCache(int maxSize) {
+        super(maxSize, 0.75f, true);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Evicts the least recently used entry if the cache is full, so that the caller can reuse
+     * the evicted value for the entry it is about to insert.
+     *
+     * @return the evicted value, or null if the cache wasn't full.
+     */
+    V evictIfFull() {
+        if (size() < maxSize) {
+            return null;
+        }
+
+        final Iterator<Map.Entry<K, V>> iterator = entrySet().iterator();
+        final V value = iterator.next().getValue();
+        iterator.remove();
+        return value;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > maxSize;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.MaskFilter;
+import android.graphics.Paint;
+import android.graphics.Picture;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.graphics.Shader;
+import android.os.Build;
+
+/**
+ * A recording of the columns of a {@link TickerView} that isn't animating, so that an idle
+ * ticker that gets drawn again (e.g. while its parent scrolls) replays the recording in a single
+ * call instead of drawing every column again. The columns are recorded into a
+ * {@link RenderNode} on API 29+ with hardware acceleration and into a {@link Picture} on
+ * software canvases. Hardware accelerated canvases before API 29 draw the columns directly:
+ * they would just copy the operations of a picture into their display list again, which is no
+ * cheaper than drawing the columns.
+ *
+ * <p>The recording has to be invalidated whenever the text or the text paint changes. The paint
+ * attributes that affect drawing and the size of the columns are also compared on every draw,
+ * so that changes to the public {@link TickerView#textPaint} are picked up as well. The shadow
+ * layer can only be compared on API 29+, which added getters for it.
+ *
+ * <p>This class is not thread-safe and should only be accessed from the main thread.
+ */
+class TickerSettledFrame {
+    private Picture picture;
+    // Only created on API 29+, once the frame is first drawn on a hardware accelerated canvas.
+    private RenderNodeRecording renderNodeRecording;
+
+    private boolean isRecorded;
+    private boolean recordedOnRenderNode;
+
+    // What the columns were last recorded with.
+    private float recordedWidth;
+    private float recordedHeight;
+    private float recordedBaseline;
+    // The attributes that affect the glyphs and their metrics, which are compared with the same
+    // key as the glyph metrics cache uses.
+    private final TickerGlyphMetricsCache.Key recordedMetricsKey =
+            new TickerGlyphMetricsCache.Key();
+    private final TickerGlyphMetricsCache.Key metricsKey = new TickerGlyphMetricsCache.Key();
+    // The attributes that only affect how the glyphs are painted.
+    private int recordedColor;
+    private Paint.Style recordedStyle;
+    private float recordedStrokeWidth;
+    private Paint.Join recordedStrokeJoin;
+    private float recordedStrokeMiter;
+    private float recordedShadowRadius;
+    private float recordedShadowDx;
+    private float recordedShadowDy;
+    private int recordedShadowColor;
+    private MaskFilter recordedMaskFilter;
+    private Shader recordedShader;
+    private ColorFilter recordedColorFilter;
+
+    TickerSettledFrame() {
+        this(null);
+    }
+
+    /**
+     * @param picture the picture to record into, or null to create one when it's first needed.
+     */
+    // VisibleForTesting
+    TickerSettledFrame(Picture picture) {
+        this.picture = picture;
+    }
+
+    void invalidate() {
+        isRecorded = false;
+    }
+
+    /**
+     * Draws the columns of {@param columnManager}, which must not be animating, replaying the
+     * last recording if nothing changed since. The canvas must already be aligned to the top
+     * left of the columns.
+     *
+     * @param width the current width of the columns.
+     * @param height the height of a character.
+     * @param baseline the baseline of a character, measured from its top.
+     */
+    void draw(Canvas canvas, TickerColumnManager columnManager, Paint textPaint, float width,
+            float height, float baseline) {
+        final boolean isHardwareAccelerated = canvas.isHardwareAccelerated();
+        final boolean useRenderNode = isHardwareAccelerated
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+        if (width <= 0f || height <= 0f || isHardwareAccelerated && !useRenderNode) {
+            // Nothing to record, or a recording wouldn't save any work
+            drawColumns(canvas, columnManager, textPaint, baseline);
+            return;
+        }
+
+        if (!isRecorded || recordedOnRenderNode != useRenderNode
+                || !isRecordedWith(textPaint, width, height, baseline)) {
+            if (useRenderNode) {
+                if (renderNodeRecording == null) {
+                    renderNodeRecording = new RenderNodeRecording();
+                }
+                renderNodeRecording.record(columnManager, textPaint, width, height, baseline);
+            } else {
+                if (picture == null) {
+                    picture = new Picture();
+                }
+                final Canvas recordingCanvas =
+                        picture.beginRecording((int) Math.ceil(width), (int) Math.ceil(height));
+                try {
+                    drawColumns(recordingCanvas, columnManager, textPaint, baseline);
+                } finally {
+                    picture.endRecording();
+                }
+            }
+            onRecorded(textPaint, width, height, baseline, useRenderNode);
+        }
+
+        if (useRenderNode) {
+            renderNodeRecording.draw(canvas);
+        } else {
+            canvas.drawPicture(picture);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.Q)
+    private boolean isRecordedWith(Paint textPaint, float width, float height, float baseline) {
+        if (width != recordedWidth || height != recordedHeight || baseline != recordedBaseline
+                || textPaint.getColor() != recordedColor
+                || textPaint.getStyle() != recordedStyle
+                || textPaint.getStrokeWidth() != recordedStrokeWidth
+                || textPaint.getStrokeJoin() != recordedStrokeJoin
+                || textPaint.getStrokeMiter() != recordedStrokeMiter
+                || textPaint.getMaskFilter() != recordedMaskFilter
+                || textPaint.getShader() != recordedShader
+                || textPaint.getColorFilter() != recordedColorFilter) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && (textPaint.getShadowLayerRadius() != recordedShadowRadius
+                        || textPaint.getShadowLayerDx() != recordedShadowDx
+                        || textPaint.getShadowLayerDy() != recordedShadowDy
+                        || textPaint.getShadowLayerColor() != recordedShadowColor)) {
+            return false;
+        }
+
+        metricsKey.set(textPaint);
+        return metricsKey.equals(recordedMetricsKey);
+    }
+
+    @TargetApi(Build.VERSION_CODES.Q)
+    private void onRecorded(Paint textPaint, float width, float height, float baseline,
+            boolean onRenderNode) {
+        isRecorded = true;
+        recordedOnRenderNode = onRenderNode;
+        recordedWidth = width;
+        recordedHeight = height;
+        recordedBaseline = baseline;
+        recordedMetricsKey.set(textPaint);
+        recordedColor = textPaint.getColor();
+        recordedStyle = textPaint.getStyle();
+        recordedStrokeWidth = textPaint.getStrokeWidth();
+        recordedStrokeJoin = textPaint.getStrokeJoin();
+        recordedStrokeMiter = textPaint.getStrokeMiter();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            recordedShadowRadius = textPaint.getShadowLayerRadius();
+            recordedShadowDx = textPaint.getShadowLayerDx();
+            recordedShadowDy = textPaint.getShadowLayerDy();
+            recordedShadowColor = textPaint.getShadowLayerColor();
+        }
+        recordedMaskFilter = textPaint.getMaskFilter();
+        recordedShader = textPaint.getShader();
+        recordedColorFilter = textPaint.getColorFilter();
+    }
+
+    static void drawColumns(Canvas canvas, TickerColumnManager columnManager, Paint textPaint,
+            float baseline) {
+        // canvas.drawText writes the text on the baseline so we need to translate beforehand.
+        canvas.translate(0f, baseline);
+        columnManager.draw(canvas, textPaint);
+    }
+
+    /**
+     * Kept in its own class so that {@link RenderNode} is only loaded on API 29+.
+     */
+    @TargetApi(Build.VERSION_CODES.Q)
+    private static class RenderNodeRecording {
+        private final RenderNode renderNode = new RenderNode("TickerSettledFrame");
+
+        void record(TickerColumnManager columnManager, Paint textPaint, float width,
+                float height, float baseline) {
+            renderNode.setPosition(0, 0, (int) Math.ceil(width), (int) Math.ceil(height));
+            final RecordingCanvas canvas = renderNode.beginRecording();
+            try {
+                drawColumns(canvas, columnManager, textPaint, baseline);
+            } finally {
+                renderNode.endRecording();
+            }
+        }
+
+        void draw(Canvas canvas) {
+            canvas.drawRenderNode(renderNode);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+/**
+ * Holds a copy of the text set on a {@link TickerView} in a buffer that is reused from one text
+ * to the next, so that setting the text from a recycled char[] or CharSequence doesn't allocate.
+ * The text is only turned into a String when it's asked for, unless it was given as one.
+ */
+class TickerTextBuffer {
+    private char[] chars = new char[0];
+    private int length;
+    private boolean isNull = true;
+    // The text as a String if it was set as one or has been asked for since, null otherwise.
+    private String string;
+
+    void set(CharSequence text) {
+        if (text instanceof String) {
+            set((String) text);
+        } else if (text == null) {
+            setNull();
+        } else {
+            final int length = text.length();
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                chars[i] = text.charAt(i);
+            }
+            onSet(length, null);
+        }
+    }
+
+    void set(String text) {
+        if (text == null) {
+            setNull();
+        } else {
+            final int length = text.length();
+            ensureCapacity(length);
+            text.getChars(0, length, chars, 0);
+            onSet(length, text);
+        }
+    }
+
+    void set(char[] buffer, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(buffer, offset, chars, 0, length);
+        onSet(length, null);
+    }
+
+    void set(TickerTextBuffer other) {
+        if (other.isNull) {
+            setNull();
+        } else {
+            set(other.chars, 0, other.length);
+            this.string = other.string;
+        }
+    }
+
+    private void setNull() {
+        onSet(0, null);
+        this.isNull = true;
+    }
+
+    private void onSet(int length, String string) {
+        this.length = length;
+        this.string = string;
+        this.isNull = false;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (chars.length < capacity) {
+            chars = new char[Math.max(capacity, chars.length * 2)];
+        }
+    }
+
+    /**
+     * @return whether this holds the same text as {@param text}, where null only equals null.
+     */
+    boolean contentEquals(CharSequence text) {
+        if (text == null || isNull) {
+            return text == null && isNull;
+        } else if (text.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether this holds the same text as the given range of {@param buffer}.
+     */
+    boolean contentEquals(char[] buffer, int offset, int length) {
+        if (isNull || length != this.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @return the buffer holding the text, which may be longer than {@link #length()}. The buffer
+     *         is reused and must not be modified.
+     */
+    char[] getChars() {
+        return chars;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * @return whether {@link #getString()} can return without building a new String.
+     */
+    boolean hasString() {
+        return isNull || string != null;
+    }
+
+    /**
+     * @return the text as a String, or null if the text was set to null.
+     */
+    String getString() {
+        if (string == null && !isNull) {
+            string = new String(chars, 0, length);
+        }
+        return string;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2016 Robinhood Markets, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.robinhood.ticker;
+
+/**
+ * A bounded LRU cache of transition plans, which are the column actions computed by
+ * {@link LevenshteinUtils} to go from one text to another. Prices tend to bounce back and forth
+ * between a handful of values, so this lets tickers skip diffing texts that they, or any other
+ * ticker with the same configuration, have recently gone between.
+ *
+ * <p>Most transitions are never seen again, so a transition is only cached the second time it
+ * misses. Until then a miss only costs the diff itself, and doesn't evict anything. Plans that
+ * get evicted are reused for the next one that gets cached, so that a full cache doesn't
+ * allocate new plans either.
+ *
+ * <p>This class is not thread-safe and should only be accessed from the main thread.
+ */
+class TickerTransitionPlanCache {
+    private static final int DEFAULT_MAX_SIZE = 64;
+    // Plans for longer texts are computed every time rather than taking up space in the cache.
+    static final int MAX_TEXT_LENGTH = 64;
+
+    private static final TickerTransitionPlanCache SHARED =
+            new TickerTransitionPlanCache(DEFAULT_MAX_SIZE);
+
+    private final TickerLruCache<Key, Plan> entries;
+    private final Key lookupKey = new Key();
+    private final PlanRecorder planRecorder = new PlanRecorder();
+    // The hash codes of the transitions that recently missed for the first time, as a ring.
+    private final int[] recentMisses;
+    private int recentMissesCount;
+    private int hitCount;
+
+    static TickerTransitionPlanCache getShared() {
+        return SHARED;
+    }
+
+    TickerTransitionPlanCache(int maxSize) {
+        this.entries = new TickerLruCache<>(maxSize);
+        this.recentMisses = new int[maxSize];
+    }
+
+    /**
+     * Sends the column actions to go from {@param source} to {@param target} to {@param sink},
+     * replaying them from the cache if this transition was seen recently and computing them
+     * with {@param workspace} otherwise.
+     *
+     * @param numericAlignment see {@link TickerView#setNumericAlignment(boolean, char)}.
+     */
+    void computeColumnActions(char[] source, int sourceLength, char[] target,
+            int targetLength, TickerCharacterListSet characterListSet, boolean numericAlignment,
+            char decimalSeparator, LevenshteinUtils.Workspace workspace,
+            LevenshteinUtils.ColumnActionSink sink) {
+        if (sourceLength > MAX_TEXT_LENGTH || targetLength > MAX_TEXT_LENGTH) {
+            compute(source, sourceLength, target, targetLength, characterListSet,
+                    numericAlignment, decimalSeparator, workspace, sink);
+            return;
+        }
+
+        lookupKey.set(source, sourceLength, target, targetLength, characterListSet,
+                numericAlignment, decimalSeparator);
+        final Plan cachedPlan = entries.get(lookupKey);
+        if (cachedPlan != null) {
+            hitCount++;
+            cachedPlan.replay(sink);
+        } else {
+            planRecorder.reset(sink);
+            compute(source, sourceLength, target, targetLength, characterListSet,
+                    numericAlignment, decimalSeparator, workspace, planRecorder);
+            if (!onFirstMiss(lookupKey.hashCode())) {
+                Plan plan = entries.evictIfFull();
+                if (plan == null) {
+                    plan = new Plan();
+                }
+                plan.set(lookupKey, planRecorder);
+                entries.put(plan.key, plan);
+            }
+            planRecorder.reset(null);
+        }
+        // Don't hold on to the caller's buffers
+        lookupKey.set(null, 0, null, 0, null, false, TickerUtils.EMPTY_CHAR);
+    }
+
+    private static void compute(char[] source, int sourceLength, char[] target,
+            int targetLength, TickerCharacterListSet characterListSet, boolean numericAlignment,
+            char decimalSeparator, LevenshteinUtils.Workspace workspace,
+            LevenshteinUtils.ColumnActionSink sink) {
+        if (numericAlignment) {
+            LevenshteinUtils.computeNumericColumnActions(source, sourceLength, target,
+                    targetLength, characterListSet.getSupportedCharacterBits(), decimalSeparator,
+                    workspace, sink);
+        } else {
+            LevenshteinUtils.computeColumnActions(source, sourceLength, target, targetLength,
+                    characterListSet.getSupportedCharacterBits(), workspace, sink);
+        }
+    }
+
+    /**
+     * Remembers that the transition with {@param hashCode} missed, unless it already missed
+     * recently. Transitions whose hash codes collide are treated as the same one, which only
+     * means that one of them gets cached a miss early.
+     *
+     * @return whether this is the first recent miss of the transition.
+     */
+    private boolean onFirstMiss(int hashCode) {
+        final int size = Math.min(recentMissesCount, recentMisses.length);
+        for (int i = 0; i < size; i++) {
+            if (recentMisses[i] == hashCode) {
+                return false;
+            }
+        }
+        recentMisses[recentMissesCount++ % recentMisses.length] = hashCode;
+        if (recentMissesCount == 2 * recentMisses.length) {
+            // Keep the count from overflowing while remembering that the ring is full
+            recentMissesCount = recentMisses.length;
+        }
+        return true;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // VisibleForTesting
+    int getHitCount() {
+        return hitCount;
+    }
+
+    void clear() {
+        entries.clear();
+        recentMissesCount = 0;
+    }
+
+    /**
+     * Identifies a transition. Character list sets are interned by
+     * {@link TickerCharacterListRegistry}, so they are compared by identity.
+     */
+    static final class Key {
+        private char[] source;
+        private int sourceLength;
+        private char[] target;
+        private int targetLength;
+        private TickerCharacterListSet characterListSet;
+        private boolean numericAlignment;
+        private char decimalSeparator;
+        private int hashCode;
+
+        void set(char[] source, int sourceLength, char[] target, int targetLength,
+                TickerCharacterListSet characterListSet, boolean numericAlignment,
+                char decimalSeparator) {
+            this.source = source;
+            this.sourceLength = sourceLength;
+            this.target = target;
+            this.targetLength = targetLength;
+            this.characterListSet = characterListSet;
+            this.numericAlignment = numericAlignment;
+            this.decimalSeparator = decimalSeparator;
+
+            int result = System.identityHashCode(characterListSet);
+            result = 31 * result + (numericAlignment ? 1 : 0);
+            result = 31 * result + decimalSeparator;
+            for (int i = 0; i < sourceLength; i++) {
+                result = 31 * result + source[i];
+            }
+            // Keeps "ab" -> "c" apart from "a" -> "bc"
+            result = 31 * result + sourceLength;
+            for (int i = 0; i < targetLength; i++) {
+                result = 31 * result + target[i];
+            }
+            this.hashCode = result;
+        }
+
+        /**
+         * Sets this key to a copy of {@param other} that doesn't share its buffers, reusing the
+         * buffers of this key when they are large enough.
+         */
+        void setCopyOf(Key other) {
+            final char[] source = obtainBuffer(this.source, other.sourceLength);
+            System.arraycopy(other.source, 0, source, 0, other.sourceLength);
+            final char[] target = obtainBuffer(this.target, other.targetLength);
+            System.arraycopy(other.target, 0, target, 0, other.targetLength);
+
+            this.source = source;
+            this.sourceLength = other.sourceLength;
+            this.target = target;
+            this.targetLength = other.targetLength;
+            this.characterListSet = other.characterListSet;
+            this.numericAlignment = other.numericAlignment;
+            this.decimalSeparator = other.decimalSeparator;
+            this.hashCode = other.hashCode;
+        }
+
+        private static char[] obtainBuffer(char[] buffer, int length) {
+            return buffer != null && buffer.length >= length ? buffer : new char[length];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key other = (Key) o;
+            return characterListSet == other.characterListSet
+                    && numericAlignment == other.numericAlignment
+                    && decimalSeparator == other.decimalSeparator
+                    && rangeEquals(source, sourceLength, other.source, other.sourceLength)
+                    && rangeEquals(target, targetLength, other.target, other.targetLength);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        private static boolean rangeEquals(char[] first, int firstLength, char[] second,
+                int secondLength) {
+            if (firstLength != secondLength) {
+                return false;
+            }
+            for (int i = 0; i < firstLength; i++) {
+                if (first[i] != second[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A cached transition and its column actions, one byte apiece. The plan owns its key so that
+     * both can be reused together once the plan gets evicted.
+     */
+    private static final class Plan {
+        final Key key = new Key();
+        // Texts are at most MAX_TEXT_LENGTH long, so this holds the actions of any plan.
+        private final byte[] actions = new byte[MAX_TEXT_LENGTH * 2];
+        private int size;
+
+        void set(Key key, PlanRecorder planRecorder) {
+            this.key.setCopyOf(key);
+            this.size = planRecorder.copyActions(actions);
+        }
+
+        void replay(LevenshteinUtils.ColumnActionSink sink) {
+            for (int i = 0; i < size; i++) {
+                sink.onColumnAction(actions[i]);
+            }
+        }
+    }
+
+    /**
+     * Records column actions one byte apiece while passing them on to another sink.
+     */
+    private static final class PlanRecorder implements LevenshteinUtils.ColumnActionSink {
+        private final byte[] actions = new byte[MAX_TEXT_LENGTH * 2];
+        private int size;
+        private LevenshteinUtils.ColumnActionSink sink;
+
+        void reset(LevenshteinUtils.ColumnActionSink sink) {
+            this.sink = sink;
+            this.size = 0;
+        }
+
+        @Override
+        public void onColumnAction(int action) {
+            actions[size++] = (byte) action;
+            sink.onColumnAction(action);
+        }
+
+        /**
+         * @return the number of actions copied into {@param destination}.
+         */
+        int copyActions(byte[] destination) {
+            System.arraycopy(actions, 0, destination, 0, size);
+            return size;
+        }
+    }
+}
@@ -30,15 +30,21 @@ import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextPaint;
-import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.View;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.animation.Interpolator;
 
+import java.io.File;
+
 /**
  * The primary view for showing a ticker text view that handles smoothly scrolling from the
  * current text to a given text. The scrolling behavior is defined by
@@ -74,15 +80,22 @@ public class TickerView extends View {
 
     private final TickerDrawMetrics metrics = new TickerDrawMetrics(textPaint);
     private final TickerColumnManager columnManager = new TickerColumnManager(metrics);
+    // Replayed instead of drawing the columns again while the ticker isn't animating.
+    private final TickerSettledFrame settledFrame = new TickerSettledFrame();
 
     private final ValueAnimator animator = ValueAnimator.ofFloat(1f);
     private AnimationHolder currentAnimation;
     private AnimationHolder nextAnimation;
+    private AnimationHolder spareAnimation;
 
     // Minor optimizations for re-positioning the canvas for the composer.
     private final Rect viewBounds = new Rect();
 
-    private String text;
+    // The last set text, copied into a buffer that is reused across calls to setText.
+    private final TickerTextBuffer text = new TickerTextBuffer();
+    private AccessibilityManager accessibilityManager;
+    // Whether the content description was left behind the text, see updateContentDescription.
+    private boolean isContentDescriptionStale;
 
     private int lastMeasuredDesiredWidth, lastMeasuredDesiredHeight;
 
@@ -132,6 +145,9 @@ public class TickerView extends View {
      * @param defStyleRes defStyleRes from constructor
      */
     protected void init(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        accessibilityManager =
+                (AccessibilityManager) context.getSystemService(Context.ACCESSIBILITY_SERVICE);
+
         final Resources res = context.getResources();
         final StyledAttributes styledAttributes = new StyledAttributes(res);
 
@@ -159,6 +175,17 @@ public class TickerView extends View {
                 R.styleable.TickerView_ticker_animationDuration, DEFAULT_ANIMATION_DURATION);
         this.animateMeasurementChange = arr.getBoolean(
                 R.styleable.TickerView_ticker_animateMeasurementChange, false);
+        columnManager.setNumericAlignment(
+                arr.getBoolean(R.styleable.TickerView_ticker_numericAlignment, false),
+                TickerColumnManager.DEFAULT_DECIMAL_SEPARATOR);
+        final boolean glyphStripRendering =
+                arr.getBoolean(R.styleable.TickerView_ticker_glyphStripRendering, false);
+        columnManager.setGlyphStripRendering(glyphStripRendering);
+        if (glyphStripRendering) {
+            TickerGlyphStripCache.releaseOnTrimMemory(context);
+        }
+        columnManager.setRenderNodeRendering(
+                arr.getBoolean(R.styleable.TickerView_ticker_renderNodeRendering, false));
         this.gravity = styledAttributes.gravity;
 
         if (styledAttributes.shadowColor != 0) {
@@ -205,6 +232,8 @@ public class TickerView extends View {
                 throw new IllegalArgumentException("Unsupported ticker_defaultPreferredScrollingDirection: " + defaultPreferredScrollingDirection);
         }
 
+        setMaxRowsPerTransition(arr.getInt(R.styleable.TickerView_ticker_maxRowsPerTransition, 0));
+
         if (isCharacterListsSet()) {
             setText(styledAttributes.text, false);
         } else {
@@ -218,8 +247,10 @@ public class TickerView extends View {
             public void onAnimationUpdate(ValueAnimator animation) {
                 columnManager.setAnimationProgress(
                         animation.getAnimatedFraction());
-                checkForRelayout();
-                invalidate();
+                if (!updateRenderNodes()) {
+                    checkForRelayout();
+                    invalidate();
+                }
             }
         });
 
@@ -294,9 +325,11 @@ public class TickerView extends View {
      * it will know that it has to go from 'd' to 'c' to 'b', and these are the characters
      * that show up during the animation scroll.
      *
-     * <p>We allow for multiple character lists, and the character lists will be prioritized with
-     * latter lists given a higher priority than the previous lists. e.g. given "123" and "13",
-     * an animation from 1 to 3 will use the sequence [1,3] rather than [1,2,3].
+     * <p>We allow for multiple character lists. If more than one list contains both the start
+     * and end characters, the list that scrolls through the fewest characters is used, and
+     * latter lists are given a higher priority than the previous lists when that is a tie.
+     * e.g. given "123" and "13", an animation from 1 to 3 will use the sequence [1,3] rather
+     * than [1,2,3].
      *
      * <p>You can find some helpful character list in {@link TickerUtils}.
      *
@@ -327,7 +360,7 @@ public class TickerView extends View {
      * @param text the text to display.
      */
     public void setText(String text) {
-        setText(text, !TextUtils.isEmpty(this.text));
+        setText(text, !this.text.isEmpty());
     }
 
     /**
@@ -338,24 +371,88 @@ public class TickerView extends View {
      * @param animate whether to animate to text.
      */
     public void setText(String text, boolean animate) {
-        if (TextUtils.equals(text, this.text)) {
+        setText((CharSequence) text, animate);
+    }
+
+    /**
+     * Similar to {@link #setText(String)} but takes in any {@link CharSequence}. The text is
+     * copied, so the caller is free to modify or reuse the sequence afterwards, e.g. to format
+     * the next value into the same {@link StringBuilder}.
+     *
+     * @param text the text to display.
+     */
+    public void setText(CharSequence text) {
+        setText(text, !this.text.isEmpty());
+    }
+
+    /**
+     * Similar to {@link #setText(CharSequence)} but provides the optional argument of whether to
+     * animate to the provided text or not.
+     *
+     * @param text the text to display.
+     * @param animate whether to animate to text.
+     */
+    public void setText(CharSequence text, boolean animate) {
+        if (this.text.contentEquals(text)) {
+            return;
+        }
+
+        obtainTargetText(animate).set(text);
+        onTargetTextSet(animate);
+    }
+
+    /**
+     * Similar to {@link #setText(String, boolean)} but takes the text from a range of a char
+     * array. The characters are copied, so the caller is free to reuse the array afterwards,
+     * e.g. to format every new value into the same buffer without allocating.
+     *
+     * @param text the buffer holding the text to display.
+     * @param offset the index of the first character of the text in the buffer.
+     * @param length the number of characters in the text.
+     * @param animate whether to animate to text.
+     */
+    public void setText(char[] text, int offset, int length, boolean animate) {
+        if (this.text.contentEquals(text, offset, length)) {
             return;
         }
 
+        obtainTargetText(animate).set(text, offset, length);
+        onTargetTextSet(animate);
+    }
+
+    /**
+     * @return the buffer to copy the new text into, which is either the current text or the text
+     *         of the next animation.
+     */
+    private TickerTextBuffer obtainTargetText(boolean animate) {
         if (!animate && animator.isRunning()) {
             animator.cancel();
+            recycleAnimation(currentAnimation);
+            recycleAnimation(nextAnimation);
             currentAnimation = nextAnimation = null;
         }
 
+        if (animate) {
+            if (nextAnimation == null) {
+                nextAnimation = spareAnimation != null ? spareAnimation : new AnimationHolder();
+                spareAnimation = null;
+            }
+            nextAnimation.set(
+                    animationDelayInMillis, animationDurationInMillis, animationInterpolator);
+            return nextAnimation.text;
+        } else {
+            return text;
+        }
+    }
+
+    private void onTargetTextSet(boolean animate) {
         if (animate) {
             // Kick off the animator that draws the transition
-            nextAnimation = new AnimationHolder(
-                    text, animationDelayInMillis, animationDurationInMillis, animationInterpolator);
             if (currentAnimation == null) {
                 startNextAnimation();
             }
         } else {
-            setTextInternal(text);
+            setTextInternal();
 
             columnManager.setAnimationProgress(1f);
             columnManager.onAnimationEnd();
@@ -371,7 +468,7 @@ public class TickerView extends View {
      * @return last set text on this view.
      */
     public String getText() {
-        return text;
+        return text.getString();
     }
 
     /**
@@ -391,6 +488,8 @@ public class TickerView extends View {
         if (this.textColor != color) {
             textColor = color;
             textPaint.setColor(textColor);
+            columnManager.onTextPaintChanged();
+            settledFrame.invalidate();
             invalidate();
         }
     }
@@ -505,6 +604,32 @@ public class TickerView extends View {
         this.metrics.setPreferredScrollingDirection(direction);
     }
 
+    /**
+     * @return the maximum number of rows that a single column scrolls through per transition,
+     *         or 0 if transitions are not limited.
+     */
+    public int getMaxRowsPerTransition() {
+        return metrics.getMaxRowsPerTransition();
+    }
+
+    /**
+     * Limits the number of rows that a single column scrolls through when animating from one
+     * character to another. Transitions spanning more rows than this, e.g. going from 'a' to 'Z'
+     * in {@link TickerUtils#provideAlphabeticalList()}, only show the characters closest to the
+     * start and the end characters and skip the ones in between.
+     *
+     * The default value is 0, which means that transitions are not limited.
+     *
+     * @param maxRowsPerTransition the maximum number of rows per transition, or 0 for no limit.
+     */
+    public void setMaxRowsPerTransition(int maxRowsPerTransition) {
+        if (maxRowsPerTransition < 0) {
+            throw new IllegalArgumentException(
+                    "maxRowsPerTransition must not be negative: " + maxRowsPerTransition);
+        }
+        this.metrics.setMaxRowsPerTransition(maxRowsPerTransition);
+    }
+
     /**
      * @return the current text gravity used to align the text. Should be one of the values defined
      *         in {@link android.view.Gravity}.
@@ -551,6 +676,121 @@ public class TickerView extends View {
         return animateMeasurementChange;
     }
 
+    /**
+     * Enables/disables aligning numbers on their decimal point. If this flag is enabled, the
+     * number in the text is not diffed character by character. Instead, its integer part is
+     * aligned to the right and its fractional part to the left of the decimal point, so that
+     * every digit keeps its column when the number changes magnitude (e.g. 9.99 to 10.01) and
+     * columns are only added or removed at the far ends of the number.
+     *
+     * <p>The number is the last run of supported characters, or the one around the first
+     * decimal separator in the text. Single characters in between supported ones, such as
+     * grouping separators, are considered part of the number.
+     *
+     * <p>This flag is disabled by default.
+     *
+     * @param numericAlignment whether or not to align numbers on their decimal point.
+     * @see #setNumericAlignment(boolean, char)
+     */
+    public void setNumericAlignment(boolean numericAlignment) {
+        setNumericAlignment(numericAlignment, getDecimalSeparator());
+    }
+
+    /**
+     * Same as {@link #setNumericAlignment(boolean)}, but also sets the decimal separator that
+     * numbers are aligned on. This is '.' by default, and should match the locale that the text
+     * is formatted for, e.g. through
+     * {@link java.text.DecimalFormatSymbols#getDecimalSeparator()}.
+     *
+     * @param numericAlignment whether or not to align numbers on their decimal point.
+     * @param decimalSeparator the character that separates the integer and fractional parts.
+     */
+    public void setNumericAlignment(boolean numericAlignment, char decimalSeparator) {
+        columnManager.setNumericAlignment(numericAlignment, decimalSeparator);
+    }
+
+    /**
+     * @return whether or not numbers are aligned on their decimal point.
+     */
+    public boolean getNumericAlignment() {
+        return columnManager.getNumericAlignment();
+    }
+
+    /**
+     * @return the decimal separator that numbers are aligned on.
+     */
+    public char getDecimalSeparator() {
+        return columnManager.getDecimalSeparator();
+    }
+
+    /**
+     * Enables/disables drawing the characters from glyph strips. If this flag is enabled, the
+     * characters of each character list are rasterized once per text style into a bitmap that is
+     * shared by all tickers, and the columns are drawn by copying characters out of it instead
+     * of drawing text every frame. This is mostly worthwhile for very large text sizes, which
+     * are too large for the system's glyph cache.
+     *
+     * <p>The text color is applied when drawing. Tickers whose text paint has a shadow layer
+     * keep being drawn as text on API 29+, and are drawn without the shadow before that.
+     * Character lists whose strip would take up more than
+     * {@link TickerGlyphStripCache#MAX_STRIP_PIXELS} pixels keep being drawn as text. The
+     * strips are released when the app's memory runs low or its UI is hidden, and rasterized
+     * again when they are next needed.
+     *
+     * <p>This flag is disabled by default.
+     *
+     * @param glyphStripRendering whether or not to draw the characters from glyph strips.
+     */
+    public void setGlyphStripRendering(boolean glyphStripRendering) {
+        if (columnManager.getGlyphStripRendering() != glyphStripRendering) {
+            columnManager.setGlyphStripRendering(glyphStripRendering);
+            if (glyphStripRendering) {
+                TickerGlyphStripCache.releaseOnTrimMemory(getContext());
+            }
+            settledFrame.invalidate();
+            invalidate();
+        }
+    }
+
+    /**
+     * @return whether or not the characters are drawn from glyph strips.
+     */
+    public boolean getGlyphStripRendering() {
+        return columnManager.getGlyphStripRendering();
+    }
+
+    /**
+     * Enables/disables drawing animating columns from render nodes. If this flag is enabled,
+     * every row that a column can scroll through is recorded once into a
+     * {@link android.graphics.RenderNode}, and animating the column only moves the node instead
+     * of drawing the visible rows again every frame. The rows are only recorded again when the
+     * column's character list or the text paint changes. Animation frames that move nothing but
+     * those nodes don't draw the view again either, they only update the positions of the nodes.
+     *
+     * <p>This flag is ignored below API 29 and when the view isn't hardware accelerated, in
+     * which case the columns are drawn as usual. Columns whose animation skips rows (see
+     * {@link #setMaxRowsPerTransition(int)}) and characters that aren't in any character list
+     * are also drawn as usual.
+     *
+     * <p>This flag is disabled by default.
+     *
+     * @param renderNodeRendering whether or not to draw animating columns from render nodes.
+     */
+    public void setRenderNodeRendering(boolean renderNodeRendering) {
+        if (columnManager.getRenderNodeRendering() != renderNodeRendering) {
+            columnManager.setRenderNodeRendering(renderNodeRendering);
+            settledFrame.invalidate();
+            invalidate();
+        }
+    }
+
+    /**
+     * @return whether or not animating columns are drawn from render nodes when possible.
+     */
+    public boolean getRenderNodeRendering() {
+        return columnManager.getRenderNodeRendering();
+    }
+
     /**
      * Adds a custom {@link android.animation.Animator.AnimatorListener} to listen to animator
      * update events used by this view.
@@ -596,6 +836,48 @@ public class TickerView extends View {
             setLayerType(View.LAYER_TYPE_SOFTWARE, null);
             textPaint.setMaskFilter(null);
         }
+        columnManager.onTextPaintChanged();
+        settledFrame.invalidate();
+    }
+
+
+    /**
+     * Measures every character in the character lists of this ticker with its current text
+     * style, and rasterizes their glyph strips if {@link #setGlyphStripRendering glyph strip
+     * rendering} is enabled. Without this, the work happens lazily when the ticker first draws
+     * or animates to new characters, which tends to coincide with the screen being opened.
+     *
+     * <p>The measurements and glyph strips are shared by all tickers with the same character
+     * lists and text style, so this can also be called during a splash screen or when the main
+     * thread is idle on a ticker that is only created and configured for this purpose, e.g.
+     * with {@code new TickerView(context)}, to prepare the tickers of the next screen.
+     *
+     * <p>This must be called on the main thread, after {@link #setCharacterLists}.
+     */
+    public void prewarm() {
+        columnManager.prewarm();
+    }
+
+    /**
+     * Enables persisting the glyph measurements of all ticker views to the app's cache directory
+     * so that on subsequent launches tickers can be laid out and drawn without measuring the
+     * font first. Measurements are invalidated whenever the OS build, the display density or
+     * the font scale changes. Only the system typefaces can be persisted, measurements for custom typefaces
+     * are still cached in memory.
+     *
+     * <p>This should be called on the main thread before any {@link TickerView} is created,
+     * e.g. in {@link android.app.Application#onCreate()}.
+     *
+     * @param context any context, used to locate the cache directory.
+     */
+    public static void enablePersistentMetricsCache(Context context) {
+        final File file = new File(context.getCacheDir(), "ticker_glyph_metrics");
+        final Resources resources = context.getResources();
+        final String fingerprint = Build.FINGERPRINT + '/'
+                + resources.getDisplayMetrics().densityDpi + '/'
+                + resources.getConfiguration().fontScale;
+        TickerGlyphMetricsCache.getShared().setStore(
+                new TickerGlyphMetricsStore(file, fingerprint, new Handler(Looper.getMainLooper())));
     }
 
 
@@ -615,6 +897,32 @@ public class TickerView extends View {
         }
     }
 
+    /**
+     * Shows the current animation frame by only moving the render nodes of the columns if that
+     * is all that changed since the last draw, see {@link TickerColumnManager#updateRenderNodes}.
+     * Unlike {@link #invalidate()}, this doesn't record the display list of the view again: the
+     * parent is only told that it needs to render again, which picks up the new node positions.
+     * The size of the view can't have changed either.
+     *
+     * @return whether the frame was shown. If not, the caller needs to invalidate the view.
+     */
+    private boolean updateRenderNodes() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || !isHardwareAccelerated()) {
+            return false;
+        }
+        final ViewParent parent = getParent();
+        if (parent == null || !columnManager.updateRenderNodes()) {
+            return false;
+        }
+        invalidateRenderNodes(parent);
+        return true;
+    }
+
+    @TargetApi(Build.VERSION_CODES.O)
+    private void invalidateRenderNodes(ViewParent parent) {
+        parent.onDescendantInvalidated(this, this);
+    }
+
     private int computeDesiredWidth() {
         final int contentWidth = (int) (animateMeasurementChange ?
                 columnManager.getCurrentWidth() : columnManager.getMinimumRequiredWidth());
@@ -630,6 +938,8 @@ public class TickerView extends View {
      */
     private void onTextPaintMeasurementChanged() {
         metrics.invalidate();
+        columnManager.onTextPaintMeasurementChanged();
+        settledFrame.invalidate();
         checkForRelayout();
         invalidate();
     }
@@ -650,6 +960,7 @@ public class TickerView extends View {
         super.onSizeChanged(width, height, oldw, oldh);
         viewBounds.set(getPaddingLeft(), getPaddingTop(), width - getPaddingRight(),
                 height - getPaddingBottom());
+        settledFrame.invalidate();
     }
 
     @Override
@@ -660,10 +971,13 @@ public class TickerView extends View {
 
         realignAndClipCanvasForGravity(canvas);
 
-        // canvas.drawText writes the text on the baseline so we need to translate beforehand.
-        canvas.translate(0f, metrics.getCharBaseline());
-
-        columnManager.draw(canvas, textPaint);
+        if (animator.isStarted()) {
+            TickerSettledFrame.drawColumns(
+                    canvas, columnManager, textPaint, metrics.getCharBaseline());
+        } else {
+            settledFrame.draw(canvas, columnManager, textPaint, columnManager.getCurrentWidth(),
+                    metrics.getCharHeight(), metrics.getCharBaseline());
+        }
 
         canvas.restore();
     }
@@ -705,37 +1019,86 @@ public class TickerView extends View {
         canvas.clipRect(0f, 0f, currentWidth, currentHeight);
     }
 
-    private void setTextInternal(String text) {
-        this.text = text;
-        final char[] targetText = text == null ? new char[0] : text.toCharArray();
+    private void setTextInternal() {
+        columnManager.setText(text.getChars(), text.length());
+        settledFrame.invalidate();
+        updateContentDescription();
+    }
 
-        columnManager.setText(targetText);
-        setContentDescription(text);
+    /**
+     * The content description is the text. Setting it means building a String out of text that
+     * was set as a char[] or a CharSequence, so that is skipped unless accessibility services
+     * are listening for the change. {@link #getContentDescription()} builds it from the text
+     * instead until the description is set again.
+     */
+    private void updateContentDescription() {
+        if (text.hasString()
+                || accessibilityManager != null && accessibilityManager.isEnabled()) {
+            setContentDescription(text.getString());
+        } else {
+            isContentDescriptionStale = true;
+        }
+    }
+
+    @Override
+    public void setContentDescription(CharSequence contentDescription) {
+        super.setContentDescription(contentDescription);
+        isContentDescriptionStale = false;
+    }
+
+    @Override
+    public CharSequence getContentDescription() {
+        return getContentDescription(
+                text, isContentDescriptionStale, super.getContentDescription());
+    }
+
+    /**
+     * @return the content description, or {@param text} if the description that was set is
+     *         stale.
+     */
+    // VisibleForTesting
+    static CharSequence getContentDescription(TickerTextBuffer text,
+            boolean isContentDescriptionStale, CharSequence contentDescription) {
+        return isContentDescriptionStale ? text.getString() : contentDescription;
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    @Override
+    public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
+        super.onInitializeAccessibilityEvent(event);
+        // View fills in the description that was last set rather than calling the getter.
+        event.setContentDescription(getContentDescription());
     }
 
     private void startNextAnimation() {
+        recycleAnimation(currentAnimation);
         AnimationHolder holder = currentAnimation = nextAnimation;
         nextAnimation = null;
         if (holder == null) return;
 
-        setTextInternal(holder.text);
+        text.set(holder.text);
+        setTextInternal();
         animator.setStartDelay(holder.animationDelayInMillis);
         animator.setDuration(holder.animationDurationInMillis);
         animator.setInterpolator(holder.animationInterpolator);
         animator.start();
     }
 
+    private void recycleAnimation(AnimationHolder holder) {
+        if (holder != null) {
+            spareAnimation = holder;
+        }
+    }
+
     private static final class AnimationHolder {
-        public final String text;
-        public final long animationDelayInMillis;
-        public final long animationDurationInMillis;
-        public final Interpolator animationInterpolator;
-
-        private AnimationHolder(String text,
-                                long animationDelayInMillis,
-                                long animationDurationInMillis,
-                                Interpolator animationInterpolator) {
-            this.text = text;
+        public final TickerTextBuffer text = new TickerTextBuffer();
+        public long animationDelayInMillis;
+        public long animationDurationInMillis;
+        public Interpolator animationInterpolator;
+
+        private void set(long animationDelayInMillis,
+                         long animationDurationInMillis,
+                         Interpolator animationInterpolator) {
             this.animationDelayInMillis = animationDelayInMillis;
             this.animationDurationInMillis = animationDurationInMillis;
             this.animationInterpolator = animationInterpolator;
@@ -3,19 +3,24 @@ package com.robinhood.ticker;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 
 public class LevenshteinUtilsTest {
     private Set<Character> numbers;
+    private BitSet numberBits;
 
     @Before
     public void setup() {
         numbers = new HashSet<>();
+        numberBits = new BitSet();
         for (char c : "1234567890".toCharArray()) {
             numbers.add(c);
+            numberBits.set(c);
         }
     }
 
@@ -77,10 +82,210 @@ public class LevenshteinUtilsTest {
         runTest("$1.0000", "$1000.0", "0011100222");
     }
 
+    @Test
+    public void test_append() {
+        runTest("$12.3", "$12.345", "0000011");
+    }
+
+    @Test
+    public void test_truncate() {
+        runTest("$12.345", "$12", "0002222");
+    }
+
+    @Test
+    public void test_equalLength_matchingSupport() {
+        runTest("$12.34", "$13.99", "000000");
+    }
+
+    @Test
+    public void test_commonPrefix_withinSegment() {
+        // The common prefix "$12" ends in the middle of the "12" and "123" segments
+        runTest("$12.5", "$123", "000122");
+    }
+
+    @Test
+    public void test_commonSuffix() {
+        runTest("12345", "124345", "001000");
+    }
+
+    @Test
+    public void test_commonSuffix_repeatedChar() {
+        // The trailing '1' is lined up with the source '1' instead of staying at the end
+        runTest("1", "211", "101");
+        runTest("2", "122", "101");
+    }
+
+    @Test
+    public void test_numeric_magnitudeChange() {
+        runNumericTest("9.99", "10.01", "10000");
+        runNumericTest("10.01", "9.99", "20000");
+    }
+
+    @Test
+    public void test_numeric_groupingSeparator() {
+        runNumericTest("$999.99", "$1,000.00", "011000000");
+    }
+
+    @Test
+    public void test_numeric_fractionLengthChange() {
+        runNumericTest("$10.5", "$9.50", "020001");
+    }
+
+    @Test
+    public void test_numeric_noSeparator() {
+        runNumericTest("99%", "100%", "1000");
+        runNumericTest("-5", "5", "20");
+    }
+
+    @Test
+    public void test_numeric_noNumber() {
+        runNumericTest("abc", "abcd", "0001");
+    }
+
+    @Test
+    public void test_workspace_reusedAcrossCalls() {
+        final LevenshteinUtils.Workspace workspace = new LevenshteinUtils.Workspace();
+        runWorkspaceTest(workspace, "15233", "9151", "100220");
+        runWorkspaceTest(workspace, "$1.0000", "$1000.0", "0011100222");
+        runWorkspaceTest(workspace, "9", "10", "10");
+    }
+
+    @Test
+    public void test_workspace_longSegment() {
+        // Longer than a single word of packed actions
+        final StringBuilder source = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 80; i++) {
+            source.append('1');
+            expected.append('0');
+        }
+        final String target = source.toString() + "2";
+        runTest(source.toString(), target, expected.toString() + "1");
+
+        final LevenshteinUtils.Workspace workspace = new LevenshteinUtils.Workspace();
+        runWorkspaceTest(workspace, target, source.toString(), expected.toString() + "2");
+        runWorkspaceTest(workspace, "2" + source, source.toString(), "2" + expected);
+    }
+
+    @Test
+    public void test_longSegment_minimumEdits() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            final char[] source = randomDigits(random, 200 + random.nextInt(300));
+            final StringBuilder target = new StringBuilder(new String(source));
+            for (int j = 0; j < 20; j++) {
+                final int index = random.nextInt(target.length());
+                if (random.nextBoolean()) {
+                    target.insert(index, randomDigits(random, 1 + random.nextInt(5)));
+                } else {
+                    target.delete(index, Math.min(target.length(), index + 1 + random.nextInt(5)));
+                }
+            }
+            if (target.length() == source.length) {
+                // Segments of the same length are never shifted around
+                target.append('0');
+            }
+            assertMinimumEdits(source, target.toString().toCharArray());
+        }
+    }
+
+    @Test
+    public void test_longSegment_singleSourceChar() {
+        final char[] target = randomDigits(new Random(7), 20000);
+        assertMinimumEdits(new char[] { target[12345] }, target);
+        for (int i = 0; i < target.length; i++) {
+            if (target[i] == '0') {
+                target[i] = '1';
+            }
+        }
+        assertMinimumEdits(new char[] { '0' }, target);
+    }
+
+    private void assertMinimumEdits(char[] source, char[] target) {
+        final int[] actions = LevenshteinUtils.computeColumnActions(source, target, numberBits);
+        int sourceIndex = 0;
+        int targetIndex = 0;
+        int edits = 0;
+        for (int action : actions) {
+            switch (action) {
+                case LevenshteinUtils.ACTION_SAME:
+                    if (source[sourceIndex++] != target[targetIndex++]) {
+                        edits++;
+                    }
+                    break;
+                case LevenshteinUtils.ACTION_INSERT:
+                    targetIndex++;
+                    edits++;
+                    break;
+                case LevenshteinUtils.ACTION_DELETE:
+                    sourceIndex++;
+                    edits++;
+                    break;
+            }
+        }
+        assertEquals(source.length, sourceIndex);
+        assertEquals(target.length, targetIndex);
+        assertEquals(computeDistance(source, target), edits);
+    }
+
+    private static int computeDistance(char[] source, char[] target) {
+        int[] previous = new int[target.length + 1];
+        int[] current = new int[target.length + 1];
+        for (int j = 0; j <= target.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= source.length; i++) {
+            current[0] = i;
+            for (int j = 1; j <= target.length; j++) {
+                final int cost = source[i - 1] == target[j - 1] ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1),
+                        previous[j - 1] + cost);
+            }
+            final int[] temp = previous;
+            previous = current;
+            current = temp;
+        }
+        return previous[target.length];
+    }
+
+    private static char[] randomDigits(Random random, int length) {
+        final char[] digits = new char[length];
+        for (int i = 0; i < length; i++) {
+            digits[i] = (char) ('0' + random.nextInt(10));
+        }
+        return digits;
+    }
+
+    private void runWorkspaceTest(LevenshteinUtils.Workspace workspace, String source,
+            String target, String actions) {
+        final StringBuilder result = new StringBuilder();
+        // Pad the buffers to make sure that only the given lengths are considered
+        final char[] sourceBuffer = (source + "99").toCharArray();
+        final char[] targetBuffer = (target + "9").toCharArray();
+        LevenshteinUtils.computeColumnActions(sourceBuffer, source.length(), targetBuffer,
+                target.length(), numberBits, workspace, new LevenshteinUtils.ColumnActionSink() {
+                    @Override
+                    public void onColumnAction(int action) {
+                        result.append(action);
+                    }
+                });
+        assertEquals(actions, result.toString());
+    }
+
     private void runTest(String source, String target, String actions) {
         final int[] result = LevenshteinUtils.computeColumnActions(
                 source.toCharArray(), target.toCharArray(), numbers);
         assertEquals(actions, convertArrToString(result));
+
+        final int[] bitSetResult = LevenshteinUtils.computeColumnActions(
+                source.toCharArray(), target.toCharArray(), numberBits);
+        assertEquals(actions, convertArrToString(bitSetResult));
+    }
+
+    private void runNumericTest(String source, String target, String actions) {
+        final int[] result = LevenshteinUtils.computeNumericColumnActions(
+                source.toCharArray(), target.toCharArray(), numberBits, '.');
+        assertEquals(actions, convertArrToString(result));
     }
 
     private String convertArrToString(int[] arr) {
@@ -0,0 +1,42 @@
+package com.robinhood.ticker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TickerCharTableTest {
+    @Test
+    public void test_getCapacity() {
+        assertEquals(4, TickerCharTable.getCapacity(0));
+        assertEquals(4, TickerCharTable.getCapacity(1));
+        assertEquals(16, TickerCharTable.getCapacity(7));
+        assertEquals(32, TickerCharTable.getCapacity(8));
+        for (int size = 1; size < 100; size++) {
+            assertFalse(TickerCharTable.needsToGrow(size, TickerCharTable.getCapacity(size)));
+        }
+    }
+
+    @Test
+    public void test_needsToGrow() {
+        assertFalse(TickerCharTable.needsToGrow(8, 16));
+        assertTrue(TickerCharTable.needsToGrow(9, 16));
+    }
+
+    @Test
+    public void test_findSlot() {
+        // Fill all but one slot so that most keys have to be probed for
+        final char[] keys = new char[8];
+        for (char c = 'a'; c < 'h'; c++) {
+            final int slot = TickerCharTable.findSlot(keys, c);
+            assertEquals(TickerUtils.EMPTY_CHAR, keys[slot]);
+            keys[slot] = c;
+        }
+
+        for (char c = 'a'; c < 'h'; c++) {
+            assertEquals(c, keys[TickerCharTable.findSlot(keys, c)]);
+        }
+        assertEquals(TickerUtils.EMPTY_CHAR, keys[TickerCharTable.findSlot(keys, 'z')]);
+    }
+}
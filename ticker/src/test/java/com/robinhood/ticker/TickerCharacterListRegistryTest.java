@@ -0,0 +1,45 @@
+package com.robinhood.ticker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TickerCharacterListRegistryTest {
+    @Test
+    public void test_obtain_sameList() {
+        final TickerCharacterList list = TickerCharacterListRegistry.obtain("0123");
+        assertSame(list, TickerCharacterListRegistry.obtain(new String("0123")));
+    }
+
+    @Test
+    public void test_obtain_differentList() {
+        assertNotSame(TickerCharacterListRegistry.obtain("0123"),
+                TickerCharacterListRegistry.obtain("01234"));
+    }
+
+    @Test
+    public void test_obtainSet_sameLists() {
+        final TickerCharacterListSet set = TickerCharacterListRegistry.obtainSet("0123", "abc");
+        assertSame(set, TickerCharacterListRegistry.obtainSet("0123", new String("abc")));
+        assertSame(TickerCharacterListRegistry.obtain("0123"), set.getCharacterLists()[0]);
+        assertSame(TickerCharacterListRegistry.obtain("abc"), set.getCharacterLists()[1]);
+        assertEquals(7, set.getSupportedCharacterBits().cardinality());
+    }
+
+    @Test
+    public void test_obtainSet_differentLists() {
+        assertNotSame(TickerCharacterListRegistry.obtainSet("0123", "abc"),
+                TickerCharacterListRegistry.obtainSet("0123abc"));
+        assertNotSame(TickerCharacterListRegistry.obtainSet("0123", "abc"),
+                TickerCharacterListRegistry.obtainSet("abc", "0123"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_obtainSet_invalidListMatchingAnotherSet() {
+        TickerCharacterListRegistry.obtainSet("0123", "abc");
+        // Joined the same way as the key of the set above, but EMPTY_CHAR isn't allowed in a list
+        TickerCharacterListRegistry.obtainSet("0123" + TickerUtils.EMPTY_CHAR + "abc");
+    }
+}
@@ -0,0 +1,79 @@
+package com.robinhood.ticker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TickerCharacterListSetTest {
+    private static final TickerView.ScrollingDirection ANY = TickerView.ScrollingDirection.ANY;
+
+    @Test
+    public void test_supportedCharacters() {
+        final TickerCharacterListSet set = createSet("012", "abc", "0a");
+        assertEquals(6, set.getSupportedCharacterBits().cardinality());
+        for (char c : "012abc".toCharArray()) {
+            assertTrue(set.getSupportedCharacterBits().get(c));
+        }
+    }
+
+    @Test
+    public void test_findCharacterList_singleMatch() {
+        final TickerCharacterListSet set = createSet("0123456789", "abc", "$");
+        assertEquals(0, set.findCharacterList('1', '9', ANY));
+        assertEquals(1, set.findCharacterList('a', 'c', ANY));
+        assertEquals(2, set.findCharacterList('$', '$', ANY));
+    }
+
+    @Test
+    public void test_findCharacterList_noMatch() {
+        final TickerCharacterListSet set = createSet("0123456789", "abc");
+        assertEquals(-1, set.findCharacterList('1', 'a', ANY));
+        assertEquals(-1, set.findCharacterList('1', '$', ANY));
+        assertEquals(-1, set.findCharacterList('$', TickerUtils.EMPTY_CHAR, ANY));
+    }
+
+    @Test
+    public void test_findCharacterList_fewestRows() {
+        // "13" only needs to scroll one row to go from 1 to 3 even though it has lower priority
+        final TickerCharacterListSet set = createSet("13", "12345");
+        assertEquals(0, set.findCharacterList('1', '3', ANY));
+        assertEquals(1, set.findCharacterList('1', '2', ANY));
+    }
+
+    @Test
+    public void test_findCharacterList_tieGoesToLatterList() {
+        final TickerCharacterListSet set = createSet("0123", "0123");
+        assertEquals(1, set.findCharacterList('0', '2', ANY));
+        assertEquals(1, set.findCharacterList(TickerUtils.EMPTY_CHAR, '2', ANY));
+    }
+
+    @Test
+    public void test_findCharacterList_emptyChar() {
+        final TickerCharacterListSet set = createSet("0123456789", "9");
+        assertEquals(1, set.findCharacterList(TickerUtils.EMPTY_CHAR, '9', ANY));
+        assertEquals(0, set.findCharacterList(TickerUtils.EMPTY_CHAR, '0', ANY));
+        assertEquals(1, set.findCharacterList(TickerUtils.EMPTY_CHAR, TickerUtils.EMPTY_CHAR, ANY));
+    }
+
+    @Test
+    public void test_findCharacterList_tooManyListsToRoute() {
+        final String[] lists = new String[70];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = Character.toString((char) ('\u4e00' + i));
+        }
+        lists[66] = "ab";
+        final TickerCharacterListSet set = createSet(lists);
+        assertEquals(66, set.findCharacterList('a', 'b', ANY));
+        assertEquals(3, set.findCharacterList('\u4e03', '\u4e03', ANY));
+        assertEquals(-1, set.findCharacterList('a', '\u4e03', ANY));
+    }
+
+    private static TickerCharacterListSet createSet(String... characterLists) {
+        final TickerCharacterList[] lists = new TickerCharacterList[characterLists.length];
+        for (int i = 0; i < characterLists.length; i++) {
+            lists[i] = new TickerCharacterList(characterLists[i]);
+        }
+        return new TickerCharacterListSet(lists);
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class TickerCharacterListTest {
 
@@ -17,83 +18,193 @@ public class TickerCharacterListTest {
     @Test
     public void test_getCharacterIndices() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices = list.getCharacterIndices('0', '1', TickerView.ScrollingDirection.ANY);
-        assertEquals(1, indices.startIndex);
-        assertEquals(2, indices.endIndex);
+        final long indices = list.getCharacterIndices('0', '1', TickerView.ScrollingDirection.ANY);
+        assertEquals(1, TickerCharacterList.getStartIndex(indices));
+        assertEquals(2, TickerCharacterList.getEndIndex(indices));
     }
 
     @Test
     public void test_getCharacterIndicesWraparound() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices = list.getCharacterIndices('2', '0', TickerView.ScrollingDirection.ANY);
-        assertEquals(3, indices.startIndex);
-        assertEquals(4, indices.endIndex);
+        final long indices = list.getCharacterIndices('2', '0', TickerView.ScrollingDirection.ANY);
+        assertEquals(3, TickerCharacterList.getStartIndex(indices));
+        assertEquals(4, TickerCharacterList.getEndIndex(indices));
     }
 
     @Test
     public void test_getCharacterIndicesWraparound2() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices = list.getCharacterIndices('0', '2', TickerView.ScrollingDirection.ANY);
-        assertEquals(4, indices.startIndex);
-        assertEquals(3, indices.endIndex);
+        final long indices = list.getCharacterIndices('0', '2', TickerView.ScrollingDirection.ANY);
+        assertEquals(4, TickerCharacterList.getStartIndex(indices));
+        assertEquals(3, TickerCharacterList.getEndIndex(indices));
     }
 
     @Test
     public void test_getCharacterIndicesForcedDown() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices = list.getCharacterIndices('2', '0', TickerView.ScrollingDirection.DOWN);
-        assertEquals(3, indices.startIndex);
-        assertEquals(4, indices.endIndex);
+        final long indices = list.getCharacterIndices('2', '0', TickerView.ScrollingDirection.DOWN);
+        assertEquals(3, TickerCharacterList.getStartIndex(indices));
+        assertEquals(4, TickerCharacterList.getEndIndex(indices));
     }
 
     @Test
     public void test_getCharacterIndicesForcedDown2() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices = list.getCharacterIndices('0', '2', TickerView.ScrollingDirection.DOWN);
-        assertEquals(1, indices.startIndex);
-        assertEquals(3, indices.endIndex);
+        final long indices = list.getCharacterIndices('0', '2', TickerView.ScrollingDirection.DOWN);
+        assertEquals(1, TickerCharacterList.getStartIndex(indices));
+        assertEquals(3, TickerCharacterList.getEndIndex(indices));
     }
 
     @Test
     public void test_getCharacterIndicesForcedUp() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices = list.getCharacterIndices('2', '0', TickerView.ScrollingDirection.UP);
-        assertEquals(3, indices.startIndex);
-        assertEquals(1, indices.endIndex);
+        final long indices = list.getCharacterIndices('2', '0', TickerView.ScrollingDirection.UP);
+        assertEquals(3, TickerCharacterList.getStartIndex(indices));
+        assertEquals(1, TickerCharacterList.getEndIndex(indices));
     }
 
     @Test
     public void test_getCharacterIndicesForcedUp2() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices = list.getCharacterIndices('0', '2', TickerView.ScrollingDirection.UP);
-        assertEquals(4, indices.startIndex);
-        assertEquals(3, indices.endIndex);
+        final long indices = list.getCharacterIndices('0', '2', TickerView.ScrollingDirection.UP);
+        assertEquals(4, TickerCharacterList.getStartIndex(indices));
+        assertEquals(3, TickerCharacterList.getEndIndex(indices));
     }
 
     @Test
     public void test_getCharacterIndicesEmptyNoWraparound() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices =
+        final long indices =
                 list.getCharacterIndices('2', TickerUtils.EMPTY_CHAR, TickerView.ScrollingDirection.ANY);
-        assertEquals(3, indices.startIndex);
-        assertEquals(0, indices.endIndex);
+        assertEquals(3, TickerCharacterList.getStartIndex(indices));
+        assertEquals(0, TickerCharacterList.getEndIndex(indices));
     }
 
     @Test
     public void test_getCharacterIndicesEmptyForcedUp() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices =
+        final long indices =
                 list.getCharacterIndices('2', TickerUtils.EMPTY_CHAR, TickerView.ScrollingDirection.UP);
-        assertEquals(3, indices.startIndex);
-        assertEquals(0, indices.endIndex);
+        assertEquals(3, TickerCharacterList.getStartIndex(indices));
+        assertEquals(0, TickerCharacterList.getEndIndex(indices));
     }
 
     @Test
     public void test_getCharacterIndicesEmptyForcedDown() {
         final TickerCharacterList list = new TickerCharacterList("012");
-        final TickerCharacterList.CharacterIndices indices =
+        final long indices =
                 list.getCharacterIndices('2', TickerUtils.EMPTY_CHAR, TickerView.ScrollingDirection.DOWN);
-        assertEquals(3, indices.startIndex);
-        assertEquals(7, indices.endIndex);
+        assertEquals(3, TickerCharacterList.getStartIndex(indices));
+        assertEquals(7, TickerCharacterList.getEndIndex(indices));
+    }
+
+    @Test
+    public void test_getCharacterIndicesUnsupported() {
+        final TickerCharacterList list = new TickerCharacterList("012");
+        assertEquals(TickerCharacterList.NO_INDICES,
+                list.getCharacterIndices('0', '3', TickerView.ScrollingDirection.ANY));
+        assertEquals(TickerCharacterList.NO_INDICES,
+                list.getCharacterIndices('a', '0', TickerView.ScrollingDirection.ANY));
+    }
+
+    @Test
+    public void test_getCharacterIndicesSparseList() {
+        // Characters that are far apart use the hashed index instead of the direct one
+        final TickerCharacterList list = new TickerCharacterList("0\u4e00\u4e01");
+        final long indices = list.getCharacterIndices('0', '\u4e01', TickerView.ScrollingDirection.DOWN);
+        assertEquals(1, TickerCharacterList.getStartIndex(indices));
+        assertEquals(3, TickerCharacterList.getEndIndex(indices));
+        assertEquals(TickerCharacterList.NO_INDICES,
+                list.getCharacterIndices('0', '\u4e02', TickerView.ScrollingDirection.ANY));
+    }
+
+    @Test
+    public void test_getCharacterIndicesWithoutTransitionTable() {
+        // Large enough that the indices are computed on the fly instead of precomputed
+        final TickerCharacterList list = new TickerCharacterList(TickerUtils.provideAlphabeticalList());
+        long indices = list.getCharacterIndices('Z', 'a', TickerView.ScrollingDirection.ANY);
+        assertEquals(52, TickerCharacterList.getStartIndex(indices));
+        assertEquals(53, TickerCharacterList.getEndIndex(indices));
+
+        indices = list.getCharacterIndices('b', TickerUtils.EMPTY_CHAR, TickerView.ScrollingDirection.DOWN);
+        assertEquals(2, TickerCharacterList.getStartIndex(indices));
+        assertEquals(105, TickerCharacterList.getEndIndex(indices));
+
+        indices = list.getCharacterIndices('a', 'c', TickerView.ScrollingDirection.UP);
+        assertEquals(53, TickerCharacterList.getStartIndex(indices));
+        assertEquals(3, TickerCharacterList.getEndIndex(indices));
+    }
+
+    @Test
+    public void test_largeRangeList() {
+        // 256 Cyrillic characters followed by the digits, stored as two ranges
+        final StringBuilder builder = new StringBuilder();
+        for (char c = '\u0400'; c <= '\u04ff'; c++) {
+            builder.append(c);
+        }
+        builder.append(TickerUtils.provideNumberList());
+        final TickerCharacterList list = new TickerCharacterList(builder.toString());
+        assertLargeList(list, builder.toString());
+    }
+
+    @Test
+    public void test_largeLatin1List() {
+        // Every other Latin-1 character, so no ranges
+        final StringBuilder builder = new StringBuilder();
+        for (char c = '\u00ff'; c >= ' '; c -= 2) {
+            builder.append(c);
+        }
+        final TickerCharacterList list = new TickerCharacterList(builder.toString());
+        assertLargeList(list, builder.toString());
+    }
+
+    @Test
+    public void test_largeList() {
+        // Every other CJK character, so no ranges and not Latin-1
+        final StringBuilder builder = new StringBuilder();
+        for (char c = '\u4e00'; c < '\u4f00'; c += 2) {
+            builder.append(c);
+        }
+        final TickerCharacterList list = new TickerCharacterList(builder.toString());
+        assertLargeList(list, builder.toString());
+    }
+
+    @Test
+    public void test_largeListWithDuplicates() {
+        // Overlapping ranges can't be stored as ranges, the last occurrence should win
+        final StringBuilder builder = new StringBuilder();
+        for (char c = 'A'; c <= 'z'; c++) {
+            builder.append(c);
+        }
+        final String characters = builder.toString() + builder.toString();
+        final TickerCharacterList list = new TickerCharacterList(characters);
+        assertNull(list.getCharacterList());
+        assertEquals(2 * characters.length() + 1, list.getSize());
+        final long indices = list.getCharacterIndices('A', 'B', TickerView.ScrollingDirection.ANY);
+        assertEquals(59, TickerCharacterList.getStartIndex(indices));
+        assertEquals(60, TickerCharacterList.getEndIndex(indices));
+    }
+
+    private static void assertLargeList(TickerCharacterList list, String characters) {
+        final int length = characters.length();
+        assertNull(list.getCharacterList());
+        assertEquals(2 * length + 1, list.getSize());
+        assertEquals(TickerUtils.EMPTY_CHAR, list.getCharacter(0));
+        for (int i = 0; i < length; i++) {
+            assertEquals(characters.charAt(i), list.getCharacter(i + 1));
+            assertEquals(characters.charAt(i), list.getCharacter(i + 1 + length));
+
+            final long indices = list.getCharacterIndices(
+                    TickerUtils.EMPTY_CHAR, characters.charAt(i), TickerView.ScrollingDirection.DOWN);
+            assertEquals(0, TickerCharacterList.getStartIndex(indices));
+            assertEquals(i + 1, TickerCharacterList.getEndIndex(indices));
+        }
+        assertEquals(TickerCharacterList.NO_INDICES,
+                list.getCharacterIndices('\u3000', characters.charAt(0), TickerView.ScrollingDirection.ANY));
+
+        final long indices = list.getCharacterIndices(characters.charAt(0), TickerUtils.EMPTY_CHAR,
+                TickerView.ScrollingDirection.DOWN);
+        assertEquals(1, TickerCharacterList.getStartIndex(indices));
+        assertEquals(2 * length + 1, TickerCharacterList.getEndIndex(indices));
     }
 }
@@ -1,16 +1,34 @@
 package com.robinhood.ticker;
 
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Matchers.anyChar;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class TickerColumnManagerTest {
     @Mock TickerDrawMetrics metrics;
+    @Mock Canvas canvas;
 
     private TickerColumnManager tickerColumnManager;
 
@@ -71,6 +89,248 @@ public class TickerColumnManagerTest {
         assertEquals('9', tickerColumnAtIndex(2).getTargetChar());
     }
 
+    @Test
+    public void test_setText_partialBuffer() {
+        tickerColumnManager.setText("12345".toCharArray(), 3);
+        assertEquals(3, numberOfTickerColumns());
+        assertEquals('3', tickerColumnAtIndex(2).getTargetChar());
+    }
+
+    @Test
+    public void test_setText_numericAlignment() {
+        tickerColumnManager.setNumericAlignment(true, '.');
+        tickerColumnManager.setText("9.99".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        final TickerColumn integerColumn = tickerColumnAtIndex(0);
+        final TickerColumn separatorColumn = tickerColumnAtIndex(1);
+
+        tickerColumnManager.setText("10.01".toCharArray());
+        assertEquals(5, numberOfTickerColumns());
+        assertEquals('1', tickerColumnAtIndex(0).getTargetChar());
+        // The existing columns keep their place relative to the decimal point
+        assertEquals(integerColumn, tickerColumnAtIndex(1));
+        assertEquals('0', integerColumn.getTargetChar());
+        assertEquals(separatorColumn, tickerColumnAtIndex(2));
+        assertEquals('.', separatorColumn.getTargetChar());
+    }
+
+    @Test
+    public void test_setText_numericAlignment_decimalComma() {
+        tickerColumnManager.setNumericAlignment(true, ',');
+        tickerColumnManager.setText("9,9".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        final TickerColumn separatorColumn = tickerColumnAtIndex(1);
+
+        tickerColumnManager.setText("10,01".toCharArray());
+        assertEquals(5, numberOfTickerColumns());
+        assertEquals(separatorColumn, tickerColumnAtIndex(2));
+        assertEquals(',', separatorColumn.getTargetChar());
+    }
+
+    @Test
+    public void test_setText_reusesRemovedColumns() {
+        tickerColumnManager.setText("-12".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        final TickerColumn minusColumn = tickerColumnAtIndex(0);
+        final TickerColumn twoColumn = tickerColumnAtIndex(2);
+
+        tickerColumnManager.setText("12".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.setText("-12".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+
+        // The '-' column has been removed and comes back as a fresh column
+        assertEquals(3, numberOfTickerColumns());
+        assertSame(minusColumn, tickerColumnAtIndex(0));
+        assertSame(twoColumn, tickerColumnAtIndex(2));
+        assertEquals('-', minusColumn.getCurrentChar());
+        assertEquals(5f, minusColumn.getCurrentWidth(), 0f);
+    }
+
+    @Test
+    public void test_setText_resetsReusedColumns() {
+        tickerColumnManager.setText("12".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.setText("2".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.setText("12".toCharArray());
+
+        // The reused column animates in from nothing rather than from where it was removed
+        assertEquals(TickerUtils.EMPTY_CHAR, tickerColumnAtIndex(0).getCurrentChar());
+        assertEquals('1', tickerColumnAtIndex(0).getTargetChar());
+        assertEquals(0f, tickerColumnAtIndex(0).getCurrentWidth(), 0f);
+        assertEquals(5f, tickerColumnAtIndex(0).getMinimumRequiredWidth(), 0f);
+    }
+
+    @Test
+    public void test_setAnimationProgress_looksUpCharHeightOnce() {
+        tickerColumnManager.setText("1234".toCharArray());
+        tickerColumnManager.setAnimationProgress(0.5f);
+        verify(metrics).getCharHeight();
+    }
+
+    @Test
+    public void test_setAnimationProgress_doesNotMeasure() {
+        tickerColumnManager.setText("1234".toCharArray());
+        reset(metrics);
+        tickerColumnManager.setAnimationProgress(0.5f);
+        tickerColumnManager.setAnimationProgress(1f);
+        assertEquals(20f, tickerColumnManager.getCurrentWidth(), 0f);
+        verify(metrics, times(2)).getCharHeight();
+        verifyNoMoreInteractions(metrics);
+    }
+
+    @Test
+    public void test_getCurrentWidth_afterMeasurementChange() {
+        tickerColumnManager.setText("12".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.onAnimationEnd();
+        assertEquals(10f, tickerColumnManager.getCurrentWidth(), 0f);
+
+        when(metrics.getCharWidth(anyChar())).thenReturn(7f);
+        tickerColumnManager.onTextPaintMeasurementChanged();
+        assertEquals(14f, tickerColumnManager.getCurrentWidth(), 0f);
+    }
+
+    @Test
+    public void test_draw_coalescesSettledColumns() {
+        final Paint paint = mockPaint(0f);
+        coalescingColumnManager();
+        tickerColumnManager.setText("12345".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.onAnimationEnd();
+
+        tickerColumnManager.setText("12346".toCharArray());
+        tickerColumnManager.setAnimationProgress(0.5f);
+        tickerColumnManager.draw(canvas, paint);
+
+        // The first four columns are drawn in one go, the rows of the last one next to them
+        verifyRun("1234", 0, 0f);
+        verifyChar(paint, '5', 20f, 5f);
+        verifyChar(paint, '6', 20f, -5f);
+        verifyNoMoreInteractions(canvas);
+
+        // Once the animation is done, the whole text is drawn in one go
+        reset(canvas);
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.draw(canvas, paint);
+        verifyRun("12346", 0, 0f);
+        verifyNoMoreInteractions(canvas);
+    }
+
+    @Test
+    public void test_draw_runsOnlyHoldLatinCharactersAndDigits() {
+        final Paint paint = mockPaint(0f);
+        coalescingColumnManager();
+        tickerColumnManager.setCharacterLists("1234567890", "$,", "\u05d0\u05d1");
+        tickerColumnManager.setText("$1,234\u05d0\u05d1".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.draw(canvas, paint);
+
+        verifyChar(paint, '$', 0f, 0f);
+        verifyChar(paint, '1', 5f, 0f);
+        verifyChar(paint, ',', 10f, 0f);
+        verifyRun("234", 3, 15f);
+        verifyChar(paint, '\u05d0', 30f, 0f);
+        verifyChar(paint, '\u05d1', 35f, 0f);
+        verifyNoMoreInteractions(canvas);
+    }
+
+    @Test
+    public void test_draw_runsNeedDrawTextRun() {
+        // Without coalescing, e.g. before API 23, every column is drawn on its own
+        final Paint paint = mockPaint(0f);
+        tickerColumnManager = new TickerColumnManager(
+                metrics, new TickerTransitionPlanCache(4), false);
+        tickerColumnManager.setCharacterLists("1234567890");
+        tickerColumnManager.setText("12".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.draw(canvas, paint);
+
+        verifyChar(paint, '1', 0f, 0f);
+        verifyChar(paint, '2', 5f, 0f);
+        verifyNoMoreInteractions(canvas);
+    }
+
+    @Test
+    public void test_updateRenderNodes_needsDrawFromRenderNodes() {
+        final Paint paint = mockPaint(0f);
+        tickerColumnManager.setRenderNodeRendering(true);
+        tickerColumnManager.setText("12".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.onAnimationEnd();
+        tickerColumnManager.setText("34".toCharArray());
+
+        // Nothing was drawn yet, and then only as text since render nodes need API 29 and
+        // hardware acceleration
+        tickerColumnManager.setAnimationProgress(0.25f);
+        assertFalse(tickerColumnManager.updateRenderNodes());
+        tickerColumnManager.draw(canvas, paint);
+        tickerColumnManager.setAnimationProgress(0.5f);
+        assertFalse(tickerColumnManager.updateRenderNodes());
+    }
+
+    @Test
+    public void test_canBeInRun() {
+        assertTrue(TickerColumnManager.canBeInRun('0'));
+        assertTrue(TickerColumnManager.canBeInRun('a'));
+        assertTrue(TickerColumnManager.canBeInRun('\u00e9'));
+        assertFalse(TickerColumnManager.canBeInRun(TickerUtils.EMPTY_CHAR));
+        assertFalse(TickerColumnManager.canBeInRun('.'));
+        // Hebrew, Arabic and CJK
+        assertFalse(TickerColumnManager.canBeInRun('\u05d0'));
+        assertFalse(TickerColumnManager.canBeInRun('\u0627'));
+        assertFalse(TickerColumnManager.canBeInRun('\u4e00'));
+    }
+
+    @Test
+    public void test_draw_kernedRunsAreNotCoalesced() {
+        final Paint paint = mockPaint(-1f);
+        coalescingColumnManager();
+        tickerColumnManager.setText("12".toCharArray());
+        tickerColumnManager.setAnimationProgress(1f);
+        tickerColumnManager.draw(canvas, paint);
+
+        verifyChar(paint, '1', 0f, 0f);
+        verifyChar(paint, '2', 5f, 0f);
+        verifyNoMoreInteractions(canvas);
+    }
+
+    private void coalescingColumnManager() {
+        tickerColumnManager = new TickerColumnManager(
+                metrics, new TickerTransitionPlanCache(4), true);
+        tickerColumnManager.setCharacterLists("1234567890");
+    }
+
+    private void verifyRun(String expected, int index, float x) {
+        final ArgumentCaptor<char[]> text = ArgumentCaptor.forClass(char[].class);
+        final int count = expected.length();
+        verify(canvas).drawTextRun(text.capture(), eq(index), eq(count), eq(index), eq(count),
+                eq(x), eq(0f), eq(false), any(Paint.class));
+        assertEquals(expected, new String(text.getValue(), index, count));
+    }
+
+    private void verifyChar(Paint paint, char expected, float x, float y) {
+        final ArgumentCaptor<char[]> text = ArgumentCaptor.forClass(char[].class);
+        final ArgumentCaptor<Integer> index = ArgumentCaptor.forClass(Integer.class);
+        verify(canvas).drawText(text.capture(), index.capture(), eq(1), eq(x), eq(y), eq(paint));
+        assertEquals(expected, text.getValue()[index.getValue()]);
+    }
+
+    private Paint mockPaint(final float kerning) {
+        when(metrics.getCharHeight()).thenReturn(10f);
+        final Paint paint = mock(Paint.class);
+        when(paint.measureText(any(char[].class), anyInt(), anyInt())).thenAnswer(
+                new Answer<Float>() {
+                    @Override
+                    public Float answer(InvocationOnMock invocation) {
+                        final int count = invocation.getArgument(2);
+                        return count * 5f + (count - 1) * kerning;
+                    }
+                });
+        return paint;
+    }
+
     private TickerColumn tickerColumnAtIndex(int index) {
         return tickerColumnManager.tickerColumns.get(index);
     }
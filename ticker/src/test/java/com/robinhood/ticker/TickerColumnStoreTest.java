@@ -0,0 +1,117 @@
+package com.robinhood.ticker;
+
+import android.graphics.Canvas;
+import android.text.TextPaint;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyChar;
+import static org.mockito.Mockito.when;
+
+public class TickerColumnStoreTest {
+    private static final float CHAR_HEIGHT = 5f;
+    private static final float DEFAULT_CHAR_WIDTH = 10f;
+
+    private static TickerCharacterListSet characterListSet = new TickerCharacterListSet(
+            new TickerCharacterList[] { new TickerCharacterList("0123456789") });
+
+    @Mock TickerDrawMetrics metrics;
+    @Mock Canvas canvas;
+    @Mock TextPaint paint;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        when(metrics.getCharHeight()).thenReturn(CHAR_HEIGHT);
+        when(metrics.getCharWidth(anyChar())).thenReturn(DEFAULT_CHAR_WIDTH);
+        when(metrics.getCharWidth(TickerUtils.EMPTY_CHAR)).thenReturn(0f);
+        when(metrics.getPreferredScrollingDirection()).thenReturn(TickerView.ScrollingDirection.ANY);
+    }
+
+    @Test
+    public void test_setAnimationProgress_matchesSingleColumns() {
+        final TickerColumnStore store = new TickerColumnStore(3);
+        final char[] targets = { '3', '9', TickerUtils.EMPTY_CHAR };
+        final TickerColumn[] columns = new TickerColumn[targets.length];
+        final TickerColumn[] singleColumns = new TickerColumn[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            columns[i] = new TickerColumn(characterListSet, metrics, store, i);
+            singleColumns[i] = new TickerColumn(characterListSet, metrics);
+            columns[i].setTargetChar('5');
+            singleColumns[i].setTargetChar('5');
+        }
+        store.setAnimationProgress(0, targets.length, 1f, CHAR_HEIGHT);
+        for (int i = 0; i < targets.length; i++) {
+            singleColumns[i].setAnimationProgress(1f);
+            columns[i].setTargetChar(targets[i]);
+            singleColumns[i].setTargetChar(targets[i]);
+        }
+
+        final float[] progresses = { 0f, 0.3f, 0.75f, 1f };
+        for (float progress : progresses) {
+            store.setAnimationProgress(0, targets.length, progress, CHAR_HEIGHT);
+            for (int i = 0; i < targets.length; i++) {
+                singleColumns[i].setAnimationProgress(progress);
+                assertEquals(singleColumns[i].getCurrentChar(), columns[i].getCurrentChar());
+                assertEquals(singleColumns[i].getCurrentWidth(), columns[i].getCurrentWidth(), 0f);
+                assertEquals(singleColumns[i].isSettled(), columns[i].isSettled());
+                assertEquals(singleColumns[i].getCurrentWidth(), store.currentWidths[i], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void test_setAnimationProgress_reportsSettledChanges() {
+        final TickerColumnStore store = new TickerColumnStore(2);
+        final TickerColumn first = new TickerColumn(characterListSet, metrics, store, 0);
+        final TickerColumn second = new TickerColumn(characterListSet, metrics, store, 1);
+        first.setTargetChar('1');
+        second.setTargetChar('2');
+
+        assertTrue(store.setAnimationProgress(0, 2, 1f, CHAR_HEIGHT));
+        assertFalse(store.setAnimationProgress(0, 2, 1f, CHAR_HEIGHT));
+        assertTrue(first.isSettled());
+        assertTrue(second.isSettled());
+
+        second.setTargetChar('4');
+        assertTrue(store.setAnimationProgress(0, 2, 1f, CHAR_HEIGHT));
+        assertTrue(second.isSettled());
+        assertEquals('4', second.getCurrentChar());
+    }
+
+    @Test
+    public void test_moveTo_keepsInterruptedState() {
+        final TickerColumn column = new TickerColumn(characterListSet, metrics);
+        final TickerColumn movedColumn = new TickerColumn(characterListSet, metrics);
+        final TickerColumnStore store = new TickerColumnStore(4);
+        for (TickerColumn tickerColumn : new TickerColumn[] { column, movedColumn }) {
+            tickerColumn.setTargetChar('0');
+            tickerColumn.setAnimationProgress(1f);
+            tickerColumn.setTargetChar('4');
+            tickerColumn.setAnimationProgress(0.6f);
+            // Saves the drawing state that the next transition starts from
+            tickerColumn.draw(canvas, paint);
+        }
+        assertEquals('2', movedColumn.getCurrentChar());
+        movedColumn.moveTo(store, 3);
+        store.clear(0);
+
+        column.setTargetChar('7');
+        movedColumn.setTargetChar('7');
+        final float[] progresses = { 0f, 0.5f, 1f };
+        for (float progress : progresses) {
+            column.setAnimationProgress(progress);
+            movedColumn.setAnimationProgress(progress);
+            assertEquals(column.getCurrentChar(), movedColumn.getCurrentChar());
+            assertEquals(column.isSettled(), movedColumn.isSettled());
+            assertEquals(column.getCurrentWidth(), store.currentWidths[3], 0f);
+        }
+    }
+}
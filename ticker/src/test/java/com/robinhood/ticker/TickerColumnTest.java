@@ -7,9 +7,19 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Matchers.anyChar;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -38,7 +48,7 @@ public class TickerColumnTest {
         when(metrics.getPreferredScrollingDirection()).thenReturn(TickerView.ScrollingDirection.ANY);
 
         tickerColumn = new TickerColumn(
-                new TickerCharacterList[] { characterList },
+                new TickerCharacterListSet(new TickerCharacterList[] { characterList }),
                 metrics
         );
     }
@@ -271,6 +281,182 @@ public class TickerColumnTest {
         verifyDraw(7, 0f);
     }
 
+    @Test
+    public void test_draw_largeCharacterList() {
+        final StringBuilder characters = new StringBuilder();
+        for (char c = 'A'; c < 'A' + 100; c++) {
+            characters.append(c);
+        }
+        tickerColumn = new TickerColumn(
+                new TickerCharacterListSet(new TickerCharacterList[] {
+                        new TickerCharacterList(characters.toString())
+                }),
+                metrics
+        );
+
+        final StringBuilder drawn = new StringBuilder();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                final char[] text = invocation.getArgument(0);
+                final int index = invocation.getArgument(1);
+                final float y = invocation.getArgument(4);
+                drawn.append(text[index]).append(y == 0f ? "" : y > 0f ? "+" : "-");
+                return null;
+            }
+        }).when(canvas).drawText(any(char[].class), anyInt(), eq(1), eq(0f), anyFloat(), eq(paint));
+
+        tickerColumn.setTargetChar('B');
+        setProgress(1f);
+        assertEquals("B", drawn.toString());
+
+        drawn.setLength(0);
+        tickerColumn.setTargetChar('D');
+        setProgress(0.5f);
+        assertEquals("C", drawn.toString());
+        assertEquals('C', tickerColumn.getCurrentChar());
+    }
+
+    @Test
+    public void test_draw_maxRowsPerTransition() {
+        final StringBuilder characters = new StringBuilder();
+        for (char c = 'A'; c < 'A' + 26; c++) {
+            characters.append(c);
+        }
+        final TickerCharacterList alphabet = new TickerCharacterList(characters.toString());
+        tickerColumn = new TickerColumn(
+                new TickerCharacterListSet(new TickerCharacterList[] { alphabet }),
+                metrics
+        );
+        when(metrics.getMaxRowsPerTransition()).thenReturn(4);
+        final char[] charList = alphabet.getCharacterList();
+
+        tickerColumn.setTargetChar('A');
+        setProgress(1f);
+        verifyDraw(charList, 1, 0f, 1);
+        reset(canvas);
+
+        // 'A' to 'M' spans 12 rows, which get compressed to A, B, C, L, M
+        tickerColumn.setTargetChar('M');
+        setProgress(0.25f);
+        verifyDraw(charList, 2, 0f, 1);
+        setProgress(0.5f);
+        verifyDraw(charList, 3, 0f, 1);
+        setProgress(0.625f);
+        verify(canvas).drawText(charList, 3, 1, 0f, CHAR_HEIGHT / 2, paint);
+        verify(canvas).drawText(charList, 12, 1, 0f, -CHAR_HEIGHT / 2, paint);
+        setProgress(0.75f);
+        verifyDraw(charList, 12, 0f, 1);
+        verifyNoMoreInteractions(canvas);
+        reset(canvas);
+
+        setProgress(1f);
+        verifyDraw(charList, 13, 0f, 1);
+        verifyNoMoreInteractions(canvas);
+    }
+
+    @Test
+    public void test_draw_onlyVisibleRows() {
+        tickerColumn.setTargetChar('1');
+        setProgress(1f);
+        // At rest only the bottom row is within the clipped area
+        verify(canvas).drawText(any(char[].class), anyInt(), eq(1), eq(0f), eq(0f), eq(paint));
+        verifyNoMoreInteractions(canvas);
+
+        // Mid-animation only the rows on either side of the baseline are visible
+        reset(canvas);
+        tickerColumn.setTargetChar('3');
+        setProgress(0.75f);
+        verify(canvas).drawText(any(char[].class), anyInt(), eq(1), eq(0f),
+                eq(CHAR_HEIGHT / 2), eq(paint));
+        verify(canvas).drawText(any(char[].class), anyInt(), eq(1), eq(0f),
+                eq(-CHAR_HEIGHT / 2), eq(paint));
+        verifyNoMoreInteractions(canvas);
+    }
+
+    @Test
+    public void test_drawGlyphStrip() {
+        tickerColumn.setTargetChar('1');
+        tickerColumn.setAnimationProgress(1f);
+        // Glyph strips are disabled
+        assertFalse(tickerColumn.drawGlyphStrip(canvas, paint, 10f));
+
+        final TickerGlyphStrip glyphStrip = mock(TickerGlyphStrip.class);
+        when(metrics.getGlyphStrip(characterList)).thenReturn(glyphStrip);
+        tickerColumn.setTargetChar('2');
+        tickerColumn.setAnimationProgress(0.5f);
+        assertTrue(tickerColumn.drawGlyphStrip(canvas, paint, 10f));
+        verify(glyphStrip).draw(canvas, 2, 10f, CHAR_HEIGHT / 2, paint);
+        verify(glyphStrip).draw(canvas, 3, 10f, -CHAR_HEIGHT / 2, paint);
+        verifyNoMoreInteractions(glyphStrip);
+        verifyNoMoreInteractions(canvas);
+        assertEquals('1', tickerColumn.getCurrentChar());
+    }
+
+    @Test
+    public void test_drawRenderNode() {
+        tickerColumn.setTargetChar('1');
+        tickerColumn.setAnimationProgress(1f);
+        tickerColumn.setTargetChar('2');
+        tickerColumn.setAnimationProgress(0.5f);
+
+        final TickerColumnRenderNode renderNode = mock(TickerColumnRenderNode.class);
+        tickerColumn.setRenderNode(renderNode);
+        assertTrue(tickerColumn.drawRenderNode(canvas, paint, 10f, 3));
+        verify(renderNode).draw(canvas, paint, metrics, characterList.getCharacterList(), null,
+                CHAR_HEIGHT, 3, 2, 10f, CHAR_HEIGHT / 2);
+        verifyNoMoreInteractions(renderNode);
+        verifyNoMoreInteractions(canvas);
+        assertEquals('1', tickerColumn.getCurrentChar());
+    }
+
+    @Test
+    public void test_updateRenderNode() {
+        tickerColumn.setTargetChar('1');
+        tickerColumn.setAnimationProgress(1f);
+        tickerColumn.setTargetChar('3');
+        tickerColumn.setAnimationProgress(0.25f);
+
+        final TickerColumnRenderNode renderNode = mock(TickerColumnRenderNode.class);
+        tickerColumn.setRenderNode(renderNode);
+        assertTrue(tickerColumn.drawRenderNode(canvas, paint, 10f, 3));
+        reset(renderNode);
+
+        // The next frame only moves the node
+        tickerColumn.setAnimationProgress(0.75f);
+        tickerColumn.updateRenderNode();
+        verify(renderNode).setVerticalPosition(CHAR_HEIGHT, 3, CHAR_HEIGHT / 2);
+        verifyNoMoreInteractions(renderNode);
+        verifyNoMoreInteractions(canvas);
+        assertEquals('2', tickerColumn.getCurrentChar());
+    }
+
+    @Test
+    public void test_drawRenderNode_compressedTransition() {
+        when(metrics.getMaxRowsPerTransition()).thenReturn(1);
+        tickerColumn.setTargetChar('0');
+        tickerColumn.setAnimationProgress(1f);
+        tickerColumn.setTargetChar('2');
+        tickerColumn.setAnimationProgress(0.5f);
+        // The path skips rows, which the recorded node doesn't know about
+        assertFalse(tickerColumn.drawRenderNode(canvas, paint, 10f, 0));
+        verifyNoMoreInteractions(canvas);
+    }
+
+    @Test
+    public void test_drawRenderNode_unsupportedCharacters() {
+        tickerColumn.setTargetChar('a');
+        tickerColumn.setAnimationProgress(1f);
+        tickerColumn.setTargetChar('b');
+        tickerColumn.setAnimationProgress(0.5f);
+        // Each transition gets its own {'a', 'b'} list, which would be recorded again every time
+        final TickerColumnRenderNode renderNode = mock(TickerColumnRenderNode.class);
+        tickerColumn.setRenderNode(renderNode);
+        assertFalse(tickerColumn.drawRenderNode(canvas, paint, 10f, 0));
+        verifyNoMoreInteractions(renderNode);
+        verifyNoMoreInteractions(canvas);
+    }
+
     private void setProgress(float progress) {
         tickerColumn.setAnimationProgress(progress);
         tickerColumn.draw(canvas, paint);
@@ -287,11 +473,12 @@ public class TickerColumnTest {
     private void verifyDraw(char[] charList, int index, float offset, int times) {
         verify(canvas, times(times))
                 .drawText(charList, index, 1, 0f, offset, paint);
-        if (index < charList.length - 1) {
+        // The rows above and below are only drawn if they poke into the clipped area
+        if (index < charList.length - 1 && offset > 0f) {
             verify(canvas, times(times))
                     .drawText(charList, index + 1, 1, 0f, offset - CHAR_HEIGHT, paint);
         }
-        if (index >= 1) {
+        if (index >= 1 && offset < 0f) {
             verify(canvas, times(times))
                     .drawText(charList, index - 1, 1, 0f, offset + CHAR_HEIGHT, paint);
         }
@@ -6,8 +6,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -27,7 +33,23 @@ public class TickerDrawMetricsTest {
         fontMetrics.bottom = 20f;
         when(paint.getFontMetrics()).thenReturn(fontMetrics);
 
-        metrics = new TickerDrawMetrics(paint);
+        // Every digit is as wide as its value, everything else is 10 wide.
+        doAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                final char[] text = invocation.getArgument(0);
+                final int index = invocation.getArgument(1);
+                final int count = invocation.getArgument(2);
+                final float[] widths = invocation.getArgument(3);
+                for (int i = 0; i < count; i++) {
+                    final char c = text[index + i];
+                    widths[i] = Character.isDigit(c) ? c - '0' : 10f;
+                }
+                return count;
+            }
+        }).when(paint).getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+
+        metrics = new TickerDrawMetrics(paint, new TickerGlyphMetricsCache(4));
     }
 
     @Test
@@ -38,10 +60,6 @@ public class TickerDrawMetricsTest {
 
     @Test
     public void test_charWidth() {
-        when(paint.measureText("1")).thenReturn(1f);
-        when(paint.measureText("2")).thenReturn(2f);
-        when(paint.measureText("3")).thenReturn(3f);
-
         assertEquals(1f, metrics.getCharWidth('1'), 0f);
         assertEquals(2f, metrics.getCharWidth('2'), 0f);
         assertEquals(3f, metrics.getCharWidth('3'), 0f);
@@ -51,6 +69,12 @@ public class TickerDrawMetricsTest {
         assertEquals(2f, metrics.getCharWidth('2'), 0f);
         assertEquals(3f, metrics.getCharWidth('3'), 0f);
 
+        // Invalidating without changing the paint should keep using the same measurements
+        metrics.invalidate();
+        assertEquals(1f, metrics.getCharWidth('1'), 0f);
+        verify(paint, times(3)).getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+
+        when(paint.getTextSize()).thenReturn(20f);
         metrics.invalidate();
 
         // These calls should re-measure based on the paint
@@ -58,10 +82,70 @@ public class TickerDrawMetricsTest {
         assertEquals(2f, metrics.getCharWidth('2'), 0f);
         assertEquals(3f, metrics.getCharWidth('3'), 0f);
 
-        verify(paint, times(2)).measureText("1");
-        verify(paint, times(2)).measureText("2");
-        verify(paint, times(2)).measureText("3");
+        verify(paint, times(6)).getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
         verify(paint, times(2)).getFontMetrics();
+        // Two lookups that missed and one that hit
+        TickerGlyphMetricsCacheTest.verifyKeyReads(paint, 5);
         verifyNoMoreInteractions(paint);
     }
+
+    @Test
+    public void test_sharedBetweenMetrics() {
+        final TickerGlyphMetricsCache cache = new TickerGlyphMetricsCache(4);
+        final TickerDrawMetrics first = new TickerDrawMetrics(paint, cache);
+        final TickerDrawMetrics second = new TickerDrawMetrics(paint, cache);
+
+        assertEquals(1f, first.getCharWidth('1'), 0f);
+        assertEquals(1f, second.getCharWidth('1'), 0f);
+
+        // The second metrics should re-use the font metrics and widths measured by the first
+        verify(paint, times(1)).getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+        // Once for the metrics created in setup and once for the shared cache
+        verify(paint, times(2)).getFontMetrics();
+    }
+
+    @Test
+    public void test_prewarm() {
+        final TickerGlyphMetricsCache cache = new TickerGlyphMetricsCache(4);
+        final TickerGlyphStripCache glyphStripCache = mock(TickerGlyphStripCache.class);
+        final TickerDrawMetrics prewarmMetrics =
+                new TickerDrawMetrics(paint, cache, glyphStripCache);
+        prewarmMetrics.setGlyphStripRendering(true);
+        final TickerCharacterList characterList =
+                TickerCharacterListRegistry.obtain(TickerUtils.provideNumberList());
+        prewarmMetrics.prewarm(characterList);
+        verify(paint, times(10))
+                .getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+        verify(glyphStripCache).get(eq(characterList), any(TickerGlyphMetrics.class), eq(paint));
+
+        // A ticker with the same text style should not need to measure anything
+        final TickerDrawMetrics metrics = new TickerDrawMetrics(paint, cache);
+        assertEquals(0f, metrics.getCharWidth('0'), 0f);
+        assertEquals(9f, metrics.getCharWidth('9'), 0f);
+        verify(paint, times(10))
+                .getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+    }
+
+    @Test
+    public void test_charWidth_empty() {
+        assertEquals(0f, metrics.getCharWidth(TickerUtils.EMPTY_CHAR), 0f);
+        verify(paint, times(0)).getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+    }
+
+    @Test
+    public void test_charWidth_outsideDenseRange() {
+        // Enough characters to force the overflow table to grow a few times
+        for (char c = '\u4e00'; c < '\u4e00' + 100; c++) {
+            assertEquals(10f, metrics.getCharWidth(c), 0f);
+        }
+        for (char c = '\u4e00'; c < '\u4e00' + 100; c++) {
+            assertEquals(10f, metrics.getCharWidth(c), 0f);
+        }
+        verify(paint, times(100)).getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+
+        when(paint.getTextSize()).thenReturn(20f);
+        metrics.invalidate();
+        assertEquals(10f, metrics.getCharWidth('\u4e00'), 0f);
+        verify(paint, times(101)).getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+    }
 }
@@ -0,0 +1,118 @@
+package com.robinhood.ticker;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TickerGlyphMetricsCacheTest {
+    @Mock Paint paint;
+    @Mock Paint otherPaint;
+
+    private TickerGlyphMetricsCache cache;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+        fontMetrics.top = -50f;
+        fontMetrics.bottom = 20f;
+        when(paint.getFontMetrics()).thenReturn(fontMetrics);
+        when(otherPaint.getFontMetrics()).thenReturn(fontMetrics);
+
+        cache = new TickerGlyphMetricsCache(2);
+    }
+
+    @Test
+    public void test_sameConfigurationIsShared() {
+        when(paint.getTextSize()).thenReturn(12f);
+        when(otherPaint.getTextSize()).thenReturn(12f);
+
+        assertSame(cache.get(paint), cache.get(otherPaint));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void test_differentConfigurationIsNotShared() {
+        final Typeface typeface = mock(Typeface.class);
+        when(paint.getTextSize()).thenReturn(12f);
+        when(otherPaint.getTextSize()).thenReturn(12f);
+        when(otherPaint.getTypeface()).thenReturn(typeface);
+        assertNotSame(cache.get(paint), cache.get(otherPaint));
+
+        when(otherPaint.getTypeface()).thenReturn(null);
+        when(otherPaint.getFlags()).thenReturn(Paint.ANTI_ALIAS_FLAG);
+        assertNotSame(cache.get(paint), cache.get(otherPaint));
+
+        when(otherPaint.getFlags()).thenReturn(0);
+        when(otherPaint.getTextSize()).thenReturn(14f);
+        assertNotSame(cache.get(paint), cache.get(otherPaint));
+
+        when(otherPaint.getTextSize()).thenReturn(12f);
+        when(otherPaint.getTextSkewX()).thenReturn(-0.25f);
+        assertNotSame(cache.get(paint), cache.get(otherPaint));
+    }
+
+    @Test
+    public void test_keyIncludesFontFeatures() {
+        final TickerGlyphMetricsCache.Key key = new TickerGlyphMetricsCache.Key();
+        key.set(paint);
+        final TickerGlyphMetricsCache.Key tabularKey = new TickerGlyphMetricsCache.Key();
+        tabularKey.set(paint);
+        assertEquals(key, tabularKey);
+
+        // Tabular digits have different widths, so they must not share measurements
+        tabularKey.fontFeatureSettings = "tnum";
+        assertNotEquals(key, tabularKey);
+        tabularKey.fontFeatureSettings = null;
+        tabularKey.fontVariationSettings = "'wght' 700";
+        assertNotEquals(key, tabularKey);
+        tabularKey.fontVariationSettings = null;
+        tabularKey.textLocales = Locale.JAPAN;
+        assertNotEquals(key, tabularKey);
+        tabularKey.textLocales = null;
+        tabularKey.elegantTextHeight = true;
+        assertNotEquals(key, tabularKey);
+    }
+
+    /**
+     * Verifies that the paint configuration was read {@param times} times, which happens once
+     * for every lookup and once more for every miss.
+     */
+    static void verifyKeyReads(Paint paint, int times) {
+        verify(paint, times(times)).getTypeface();
+        verify(paint, times(times)).getTextSize();
+        verify(paint, times(times)).getTextScaleX();
+        verify(paint, times(times)).getTextSkewX();
+        verify(paint, times(times)).getFlags();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            verify(paint, times(times)).getLetterSpacing();
+            verify(paint, times(times)).isElegantTextHeight();
+            verify(paint, times(times)).getFontFeatureSettings();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            verify(paint, times(times)).getFontVariationSettings();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            verify(paint, times(times)).getTextLocales();
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            verify(paint, times(times)).getTextLocale();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.robinhood.ticker;
+
+import android.graphics.Paint;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TickerGlyphMetricsStoreTest {
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock Paint paint;
+
+    private File file;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+        fontMetrics.top = -50f;
+        fontMetrics.bottom = 20f;
+        when(paint.getFontMetrics()).thenReturn(fontMetrics);
+        when(paint.getTextSize()).thenReturn(12f);
+        doAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                final char[] text = invocation.getArgument(0);
+                final float[] widths = invocation.getArgument(3);
+                widths[0] = text[0] == '1' ? 1f : 10f;
+                return 1;
+            }
+        }).when(paint).getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+
+        file = new File(temporaryFolder.getRoot(), "metrics");
+    }
+
+    @Test
+    public void test_roundTrip() {
+        final TickerGlyphMetricsStore store = new TickerGlyphMetricsStore(file, "fingerprint", null);
+        final TickerGlyphMetricsCache cache = new TickerGlyphMetricsCache(4);
+        cache.setStore(store);
+        final TickerGlyphMetrics glyphMetrics = cache.get(paint);
+        glyphMetrics.getCharWidth('1', paint);
+        glyphMetrics.getCharWidth('\u4e00', paint);
+        store.save();
+
+        final Paint restoredPaint = newPaint(12f);
+        final TickerGlyphMetricsCache restoredCache = new TickerGlyphMetricsCache(4);
+        restoredCache.setStore(new TickerGlyphMetricsStore(file, "fingerprint", null));
+        final TickerGlyphMetrics restored = restoredCache.get(restoredPaint);
+
+        assertEquals(70f, restored.getCharHeight(), 0f);
+        assertEquals(50f, restored.getCharBaseline(), 0f);
+        assertEquals(1f, restored.getCharWidth('1', restoredPaint), 0f);
+        assertEquals(10f, restored.getCharWidth('\u4e00', restoredPaint), 0f);
+        assertEquals(2, restored.getMeasuredCharCount());
+        verify(restoredPaint, never()).getFontMetrics();
+        verify(restoredPaint, never())
+                .getTextWidths(any(char[].class), anyInt(), anyInt(), any(float[].class));
+    }
+
+    @Test
+    public void test_differentConfigurationIsNotRestored() {
+        final TickerGlyphMetricsStore store = new TickerGlyphMetricsStore(file, "fingerprint", null);
+        final TickerGlyphMetricsCache cache = new TickerGlyphMetricsCache(4);
+        cache.setStore(store);
+        cache.get(paint).getCharWidth('1', paint);
+        store.save();
+
+        final TickerGlyphMetricsStore restoredStore =
+                new TickerGlyphMetricsStore(file, "fingerprint", null);
+        final TickerGlyphMetricsCache.Key key = new TickerGlyphMetricsCache.Key();
+        key.set(newPaint(14f));
+        assertNull(restoredStore.get(key));
+        key.set(newPaint(12f));
+        key.fontFeatureSettings = "tnum";
+        assertNull(restoredStore.get(key));
+        key.set(newPaint(12f));
+        assertNotNull(restoredStore.get(key));
+    }
+
+    @Test
+    public void test_staleFingerprint() {
+        final TickerGlyphMetricsStore store = new TickerGlyphMetricsStore(file, "fingerprint", null);
+        final TickerGlyphMetricsCache cache = new TickerGlyphMetricsCache(4);
+        cache.setStore(store);
+        cache.get(paint).getCharWidth('1', paint);
+        store.save();
+
+        final TickerGlyphMetricsStore staleStore =
+                new TickerGlyphMetricsStore(file, "other fingerprint", null);
+        final TickerGlyphMetricsCache.Key key = new TickerGlyphMetricsCache.Key();
+        key.set(newPaint(12f));
+        assertNull(staleStore.get(key));
+    }
+
+    @Test
+    public void test_trackedMetricsSurviveEviction() {
+        final TickerGlyphMetricsCache cache = new TickerGlyphMetricsCache(1);
+        cache.setStore(new TickerGlyphMetricsStore(file, "fingerprint", null));
+        final TickerGlyphMetrics glyphMetrics = cache.get(paint);
+
+        // Evict the first entry from the in-memory cache
+        cache.get(newPaint(14f));
+        assertSame(glyphMetrics, cache.get(paint));
+    }
+
+    @Test
+    public void test_sizeIsCapped() {
+        final TickerGlyphMetricsStore store = new TickerGlyphMetricsStore(file, "fingerprint", null);
+        final TickerGlyphMetricsCache cache = new TickerGlyphMetricsCache(4);
+        cache.setStore(store);
+        cache.get(paint);
+        store.save();
+
+        // The entry restored from disk goes unused while the store fills up with new ones
+        final TickerGlyphMetricsStore restoredStore =
+                new TickerGlyphMetricsStore(file, "fingerprint", null);
+        final TickerGlyphMetricsCache restoredCache = new TickerGlyphMetricsCache(4);
+        restoredCache.setStore(restoredStore);
+        for (int i = 0; i <= TickerGlyphMetricsStore.MAX_ENTRIES; i++) {
+            restoredCache.get(newPaint(100f + i));
+        }
+        restoredStore.save();
+
+        final TickerGlyphMetricsStore cappedStore =
+                new TickerGlyphMetricsStore(file, "fingerprint", null);
+        final TickerGlyphMetricsCache.Key key = new TickerGlyphMetricsCache.Key();
+        key.set(paint);
+        assertNull(cappedStore.get(key));
+        key.set(newPaint(100f));
+        assertNull(cappedStore.get(key));
+        for (int i = 1; i <= TickerGlyphMetricsStore.MAX_ENTRIES; i++) {
+            key.set(newPaint(100f + i));
+            assertNotNull(cappedStore.get(key));
+        }
+    }
+
+    private Paint newPaint(float textSize) {
+        final Paint newPaint = mock(Paint.class);
+        when(newPaint.getTextSize()).thenReturn(textSize);
+        when(newPaint.getFontMetrics()).thenReturn(new Paint.FontMetrics());
+        return newPaint;
+    }
+}
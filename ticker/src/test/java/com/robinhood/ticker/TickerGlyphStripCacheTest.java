@@ -0,0 +1,158 @@
+package com.robinhood.ticker;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TickerGlyphStripCacheTest {
+    private final TickerCharacterList numbers =
+            TickerCharacterListRegistry.obtain(TickerUtils.provideNumberList());
+    private final Paint paint = mock(Paint.class);
+
+    private TickerGlyphStripCache cache;
+
+    @Before
+    public void setup() {
+        cache = new TickerGlyphStripCache(2, Integer.MAX_VALUE, mock(Rect.class));
+    }
+
+    @Test
+    public void test_isWithinSizeLimits() {
+        assertTrue(TickerGlyphStripCache.isWithinSizeLimits(100, 100, 10));
+        assertFalse(TickerGlyphStripCache.isWithinSizeLimits(0, 100, 10));
+        assertFalse(TickerGlyphStripCache.isWithinSizeLimits(100, 0, 10));
+        // Too tall
+        assertFalse(TickerGlyphStripCache.isWithinSizeLimits(10, 500, 10));
+        // Too many pixels
+        assertFalse(TickerGlyphStripCache.isWithinSizeLimits(2000, 100, 10));
+    }
+
+    @Test
+    public void test_cellBounds() {
+        final TickerGlyphMetrics glyphMetrics = createGlyphMetrics(10.5f, 20f);
+        glyphMetrics.putCharWidth('7', 30.25f);
+        final Rect cellBounds = mock(Rect.class);
+        TickerGlyphStrip.getCellBounds(numbers, glyphMetrics, paint, cellBounds);
+
+        assertEquals(10, TickerGlyphStrip.getNumCharacters(numbers));
+        // The advance width and line height plus a pixel on each side
+        assertBounds(-1, -10, 32, 4, cellBounds);
+    }
+
+    @Test
+    public void test_cellBounds_overhangingGlyphs() {
+        final TickerGlyphMetrics glyphMetrics = createGlyphMetrics(10.5f, 20f);
+        // A slanted '7' that reaches past its advance width on the right and the line on top
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                final char[] text = invocation.getArgument(0);
+                final Rect bounds = invocation.getArgument(3);
+                if (text[0] == '7') {
+                    setBounds(-2, -12, 25, 1, bounds);
+                } else {
+                    setBounds(1, -8, 19, 0, bounds);
+                }
+                return null;
+            }
+        }).when(paint).getTextBounds(any(char[].class), anyInt(), anyInt(), any(Rect.class));
+        when(paint.getStrokeWidth()).thenReturn(3f);
+        final Rect cellBounds = mock(Rect.class);
+        TickerGlyphStrip.getCellBounds(numbers, glyphMetrics, paint, cellBounds);
+
+        // Padded by half the stroke width plus a pixel
+        assertBounds(-5, -15, 28, 6, cellBounds);
+    }
+
+    @Test
+    public void test_strokeIsPartOfTheKey() {
+        final TickerGlyphMetrics glyphMetrics = createGlyphMetrics(1000f, 200f);
+        cache.get(numbers, glyphMetrics, paint);
+        when(paint.getStrokeWidth()).thenReturn(2f);
+        cache.get(numbers, glyphMetrics, paint);
+        assertEquals(2, cache.size());
+
+        cache.get(numbers, glyphMetrics, paint);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void test_tooLargeStripIsNotCreated() {
+        final TickerGlyphMetrics glyphMetrics = createGlyphMetrics(1000f, 200f);
+        assertNull(cache.get(numbers, glyphMetrics, paint));
+        assertEquals(1, cache.size());
+
+        // Looking it up again reuses the entry
+        assertNull(cache.get(numbers, glyphMetrics, paint));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void test_sizeInBytesIsCapped() {
+        final int[] createdStrips = new int[1];
+        cache = new TickerGlyphStripCache(8, 100, mock(Rect.class)) {
+            @Override
+            TickerGlyphStrip createGlyphStrip(TickerCharacterList characterList,
+                    Paint textPaint, Rect cellBounds) {
+                createdStrips[0]++;
+                final TickerGlyphStrip glyphStrip = mock(TickerGlyphStrip.class);
+                when(glyphStrip.getByteCount()).thenReturn(40);
+                return glyphStrip;
+            }
+        };
+        final TickerGlyphMetrics glyphMetrics = createGlyphMetrics(20f, 10f);
+        for (int strokeWidth = 0; strokeWidth < 3; strokeWidth++) {
+            when(paint.getStrokeWidth()).thenReturn((float) strokeWidth);
+            assertNotNull(cache.get(numbers, glyphMetrics, paint));
+        }
+        // The third strip pushed out the least recently used one
+        assertEquals(2, cache.size());
+        assertEquals(3, createdStrips[0]);
+
+        when(paint.getStrokeWidth()).thenReturn(2f);
+        cache.get(numbers, glyphMetrics, paint);
+        assertEquals(3, createdStrips[0]);
+        when(paint.getStrokeWidth()).thenReturn(0f);
+        cache.get(numbers, glyphMetrics, paint);
+        assertEquals(4, createdStrips[0]);
+        assertEquals(2, cache.size());
+    }
+
+    private static void setBounds(int left, int top, int right, int bottom, Rect bounds) {
+        bounds.left = left;
+        bounds.top = top;
+        bounds.right = right;
+        bounds.bottom = bottom;
+    }
+
+    private static void assertBounds(int left, int top, int right, int bottom, Rect bounds) {
+        assertEquals(left, bounds.left);
+        assertEquals(top, bounds.top);
+        assertEquals(right, bounds.right);
+        assertEquals(bottom, bounds.bottom);
+    }
+
+    private static TickerGlyphMetrics createGlyphMetrics(float charHeight, float charWidth) {
+        final TickerGlyphMetrics glyphMetrics =
+                new TickerGlyphMetrics(charHeight, 0.8f * charHeight);
+        for (char c = '0'; c <= '9'; c++) {
+            glyphMetrics.putCharWidth(c, charWidth);
+        }
+        return glyphMetrics;
+    }
+}
@@ -0,0 +1,45 @@
+package com.robinhood.ticker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TickerLruCacheTest {
+    private TickerLruCache<String, Integer> cache;
+
+    @Before
+    public void setup() {
+        cache = new TickerLruCache<>(2);
+    }
+
+    @Test
+    public void test_leastRecentlyUsedIsEvicted() {
+        cache.put("1", 1);
+        cache.put("2", 2);
+        // Touch the first entry so that the second one becomes the eldest
+        cache.get("1");
+        cache.put("3", 3);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.containsKey("1"));
+        assertFalse(cache.containsKey("2"));
+        assertTrue(cache.containsKey("3"));
+    }
+
+    @Test
+    public void test_evictIfFull() {
+        cache.put("1", 1);
+        assertNull(cache.evictIfFull());
+        assertEquals(1, cache.size());
+
+        cache.put("2", 2);
+        cache.get("1");
+        assertEquals(Integer.valueOf(2), cache.evictIfFull());
+        assertEquals(1, cache.size());
+        assertTrue(cache.containsKey("1"));
+    }
+}
@@ -0,0 +1,124 @@
+package com.robinhood.ticker;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Picture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TickerSettledFrameTest {
+    private static final float WIDTH = 30f;
+    private static final float HEIGHT = 10f;
+    private static final float BASELINE = 8f;
+
+    @Mock Canvas canvas;
+    @Mock Canvas recordingCanvas;
+    @Mock Picture picture;
+    @Mock Paint paint;
+    @Mock TickerColumnManager columnManager;
+
+    private TickerSettledFrame settledFrame;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        when(picture.beginRecording(anyInt(), anyInt())).thenReturn(recordingCanvas);
+        settledFrame = new TickerSettledFrame(picture);
+    }
+
+    @Test
+    public void test_draw_replaysRecording() {
+        draw(WIDTH);
+        draw(WIDTH);
+        draw(WIDTH);
+
+        verify(picture).beginRecording(30, 10);
+        verify(recordingCanvas).translate(0f, BASELINE);
+        verify(columnManager).draw(recordingCanvas, paint);
+        verify(picture).endRecording();
+        verify(canvas, times(3)).drawPicture(picture);
+    }
+
+    @Test
+    public void test_draw_invalidate() {
+        draw(WIDTH);
+        settledFrame.invalidate();
+        draw(WIDTH);
+
+        verify(columnManager, times(2)).draw(recordingCanvas, paint);
+    }
+
+    @Test
+    public void test_draw_paintChanged() {
+        draw(WIDTH);
+        when(paint.getColor()).thenReturn(0xFF00FF00);
+        draw(WIDTH);
+        draw(WIDTH);
+
+        verify(columnManager, times(2)).draw(recordingCanvas, paint);
+    }
+
+    @Test
+    public void test_draw_metricsChanged() {
+        draw(WIDTH);
+        when(paint.getTextScaleX()).thenReturn(1.5f);
+        draw(WIDTH);
+        draw(WIDTH);
+
+        verify(columnManager, times(2)).draw(recordingCanvas, paint);
+    }
+
+    @Test
+    public void test_draw_strokeChanged() {
+        draw(WIDTH);
+        when(paint.getStrokeWidth()).thenReturn(2f);
+        draw(WIDTH);
+        draw(WIDTH);
+
+        verify(columnManager, times(2)).draw(recordingCanvas, paint);
+    }
+
+    @Test
+    public void test_draw_sizeChanged() {
+        draw(WIDTH);
+        draw(WIDTH + 1f);
+        draw(WIDTH + 1f);
+
+        verify(columnManager, times(2)).draw(recordingCanvas, paint);
+    }
+
+    @Test
+    public void test_draw_empty() {
+        draw(0f);
+
+        verify(canvas).translate(0f, BASELINE);
+        verify(columnManager).draw(canvas, paint);
+        verify(canvas, never()).drawPicture(any(Picture.class));
+    }
+
+    @Test
+    public void test_draw_hardwareAcceleratedBeforeQ() {
+        // Replaying a picture on a hardware accelerated canvas doesn't save any work
+        when(canvas.isHardwareAccelerated()).thenReturn(true);
+        draw(WIDTH);
+        draw(WIDTH);
+
+        verify(columnManager, times(2)).draw(canvas, paint);
+        verify(canvas, never()).drawPicture(any(Picture.class));
+    }
+
+    private void draw(float width) {
+        settledFrame.draw(canvas, columnManager, paint, width, HEIGHT, BASELINE);
+    }
+}
@@ -0,0 +1,73 @@
+package com.robinhood.ticker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TickerTextBufferTest {
+    private final TickerTextBuffer buffer = new TickerTextBuffer();
+
+    @Test
+    public void test_initiallyNull() {
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.hasString());
+        assertNull(buffer.getString());
+        assertTrue(buffer.contentEquals(null));
+        assertFalse(buffer.contentEquals(""));
+    }
+
+    @Test
+    public void test_setString_keepsString() {
+        final String text = "$1.23";
+        buffer.set(text);
+        assertTrue(buffer.hasString());
+        assertSame(text, buffer.getString());
+        assertEquals(5, buffer.length());
+        assertTrue(buffer.contentEquals(new StringBuilder("$1.23")));
+        assertFalse(buffer.contentEquals((CharSequence) null));
+    }
+
+    @Test
+    public void test_setChars_buildsStringLazily() {
+        final char[] chars = "xx$1.23x".toCharArray();
+        buffer.set(chars, 2, 5);
+        assertFalse(buffer.hasString());
+        assertTrue(buffer.contentEquals(chars, 2, 5));
+        assertFalse(buffer.contentEquals(chars, 2, 4));
+
+        // The buffer holds its own copy
+        chars[2] = '#';
+        assertEquals("$1.23", buffer.getString());
+        assertTrue(buffer.hasString());
+        assertSame(buffer.getString(), buffer.getString());
+    }
+
+    @Test
+    public void test_setCharSequence_copies() {
+        final StringBuilder builder = new StringBuilder("12");
+        buffer.set(builder);
+        builder.setLength(0);
+        builder.append("345");
+        assertEquals("12", buffer.getString());
+
+        buffer.set(builder);
+        assertEquals("345", buffer.getString());
+    }
+
+    @Test
+    public void test_setBuffer() {
+        final TickerTextBuffer other = new TickerTextBuffer();
+        other.set("123");
+        buffer.set(other);
+        assertSame(other.getString(), buffer.getString());
+
+        other.set((String) null);
+        buffer.set(other);
+        assertNull(buffer.getString());
+        assertTrue(buffer.contentEquals(null));
+    }
+}
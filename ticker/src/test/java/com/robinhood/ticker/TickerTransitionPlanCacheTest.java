@@ -0,0 +1,211 @@
+package com.robinhood.ticker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class TickerTransitionPlanCacheTest {
+    private final LevenshteinUtils.Workspace workspace = new LevenshteinUtils.Workspace();
+    private final ActionRecorder actions = new ActionRecorder();
+    private final TickerCharacterListSet numbers =
+            TickerCharacterListRegistry.obtainSet(TickerUtils.provideNumberList());
+
+    private TickerTransitionPlanCache cache;
+
+    @Before
+    public void setup() {
+        cache = new TickerTransitionPlanCache(2);
+    }
+
+    @Test
+    public void test_planMatchesColumnActions() {
+        for (int i = 0; i < 3; i++) {
+            // Computed, computed and cached, then replayed
+            assertArrayEquals(new byte[] {0, 0, 0, 1, 0, 0, 0, 0},
+                    get("$123.99", "$1223.98", false));
+            assertArrayEquals(new byte[] {1, 0, 0, 0, 0}, get("9.99", "10.01", true));
+        }
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void test_transitionIsCachedOnSecondMiss() {
+        get("101.25", "101.26", false);
+        assertEquals(0, cache.size());
+        get("101.25", "101.26", false);
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.getHitCount());
+
+        get("101.25", "101.26", false);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void test_differentTransitionIsNotShared() {
+        getTwice("101.25", "101.26", false);
+        getTwice("101.26", "101.25", false);
+        getTwice("101.25", "101.26", true);
+        cache.computeColumnActions("101.25".toCharArray(), 6, "101.26".toCharArray(), 6,
+                TickerCharacterListRegistry.obtainSet(TickerUtils.provideAlphabeticalList()),
+                false, '.', workspace, actions);
+        cache.computeColumnActions("101.25".toCharArray(), 6, "101.26".toCharArray(), 6,
+                numbers, true, ',', workspace, actions);
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void test_lengthsArePartOfTheKey() {
+        final char[] source = "12345".toCharArray();
+        final char[] target = "12345".toCharArray();
+        for (int i = 0; i < 2; i++) {
+            actions.clear();
+            cache.computeColumnActions(source, 2, target, 3, numbers, false, '.', workspace,
+                    actions);
+            assertArrayEquals(new byte[] {0, 0, 1}, actions.toArray());
+        }
+
+        actions.clear();
+        cache.computeColumnActions(source, 3, target, 2, numbers, false, '.', workspace,
+                actions);
+        assertArrayEquals(new byte[] {0, 0, 2}, actions.toArray());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void test_callerBuffersAreNotRetained() {
+        final char[] source = "12".toCharArray();
+        for (int i = 0; i < 2; i++) {
+            cache.computeColumnActions(source, 2, "123".toCharArray(), 3, numbers, false, '.',
+                    workspace, actions);
+        }
+        source[1] = '3';
+        get("12", "123", false);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void test_evictedPlansAreReused() {
+        getTwice("1", "2", false);
+        getTwice("2", "3", false);
+        // Evicts 1 -> 2, whose plan is reused for a transition with longer texts and more actions
+        assertArrayEquals(new byte[] {0, 0, 0, 1}, getTwice("345", "3456", false));
+        assertEquals(2, cache.size());
+
+        assertArrayEquals(new byte[] {0, 0, 0, 1}, get("345", "3456", false));
+        assertArrayEquals(new byte[] {0}, get("2", "3", false));
+        assertEquals(2, cache.getHitCount());
+        get("1", "2", false);
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void test_missWithFullCacheDoesNotAllocate() throws Exception {
+        final AllocationCounter allocationCounter = AllocationCounter.create();
+        assumeTrue(allocationCounter != null);
+
+        final int numTransitions = 1000;
+        final char[][] sources = new char[numTransitions][];
+        final char[][] targets = new char[numTransitions][];
+        for (int i = 0; i < numTransitions; i++) {
+            sources[i] = Integer.toString(100000 + i).toCharArray();
+            targets[i] = Integer.toString(200000 + i).toCharArray();
+        }
+        getTwice("1", "2", false);
+        getTwice("2", "3", false);
+
+        // Warm up the workspace, the JIT and the recent misses
+        for (int i = 0; i < numTransitions / 2; i++) {
+            cache.computeColumnActions(sources[i], 6, targets[i], 6, numbers, false, '.',
+                    workspace, actions);
+            actions.clear();
+        }
+        final long measurementStart = allocationCounter.getAllocatedBytes();
+        final long measurementCost = allocationCounter.getAllocatedBytes() - measurementStart;
+
+        final long before = allocationCounter.getAllocatedBytes();
+        for (int i = numTransitions / 2; i < numTransitions; i++) {
+            cache.computeColumnActions(sources[i], 6, targets[i], 6, numbers, false, '.',
+                    workspace, actions);
+            actions.clear();
+        }
+        final long allocated = allocationCounter.getAllocatedBytes() - before - measurementCost;
+
+        assertEquals(0, allocated);
+        assertEquals(2, cache.size());
+    }
+
+    private byte[] get(String source, String target, boolean numericAlignment) {
+        actions.clear();
+        cache.computeColumnActions(source.toCharArray(), source.length(), target.toCharArray(),
+                target.length(), numbers, numericAlignment, '.', workspace, actions);
+        return actions.toArray();
+    }
+
+    private byte[] getTwice(String source, String target, boolean numericAlignment) {
+        get(source, target, numericAlignment);
+        return get(source, target, numericAlignment);
+    }
+
+    /**
+     * Counts the bytes allocated by the current thread on JVMs that support it. This goes
+     * through reflection since java.lang.management isn't part of the Android SDK.
+     */
+    private static class AllocationCounter {
+        private final Object threadBean;
+        private final Method getThreadAllocatedBytes;
+        private final long threadId = Thread.currentThread().getId();
+
+        private AllocationCounter(Object threadBean, Method getThreadAllocatedBytes) {
+            this.threadBean = threadBean;
+            this.getThreadAllocatedBytes = getThreadAllocatedBytes;
+        }
+
+        static AllocationCounter create() {
+            try {
+                final Object threadBean = Class.forName("java.lang.management.ManagementFactory")
+                        .getMethod("getThreadMXBean").invoke(null);
+                final Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+                if (!beanClass.isInstance(threadBean)
+                        || !(Boolean) beanClass.getMethod("isThreadAllocatedMemorySupported")
+                                .invoke(threadBean)) {
+                    return null;
+                }
+                beanClass.getMethod("setThreadAllocatedMemoryEnabled", boolean.class)
+                        .invoke(threadBean, true);
+                return new AllocationCounter(threadBean,
+                        beanClass.getMethod("getThreadAllocatedBytes", long.class));
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        long getAllocatedBytes() throws ReflectiveOperationException {
+            return (Long) getThreadAllocatedBytes.invoke(threadBean, threadId);
+        }
+    }
+
+    private static class ActionRecorder implements LevenshteinUtils.ColumnActionSink {
+        private final byte[] actions = new byte[TickerTransitionPlanCache.MAX_TEXT_LENGTH * 2];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        @Override
+        public void onColumnAction(int action) {
+            actions[size++] = (byte) action;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(actions, size);
+        }
+    }
+}
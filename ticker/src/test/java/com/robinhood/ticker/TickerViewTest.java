@@ -9,6 +9,7 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -73,6 +74,24 @@ public class TickerViewTest {
         testAndCheckGravity(Gravity.BOTTOM | Gravity.CENTER_HORIZONTAL, 30f, 30f, 35f, 70f);
     }
 
+    @Test
+    public void test_getContentDescription() {
+        final TickerTextBuffer text = new TickerTextBuffer();
+        text.set("12.34");
+        assertEquals("12.34", TickerView.getContentDescription(text, false, "12.34"));
+    }
+
+    @Test
+    public void test_getContentDescription_chars() {
+        final TickerTextBuffer text = new TickerTextBuffer();
+        text.set("12.34");
+        text.set(new char[] {'5', '6'}, 0, 2);
+        // Built from the text rather than left at the previous text
+        assertEquals("56", TickerView.getContentDescription(text, true, "12.34"));
+        // Regardless of whether the text was turned into a String already
+        assertEquals("56", TickerView.getContentDescription(text, true, "12.34"));
+    }
+
     private void testAndCheckGravity(int gravity, float currWidth, float currHeight,
             float translationX, float translationY) {
         TickerView.realignAndClipCanvasForGravity(canvas, gravity, viewBounds, currWidth,